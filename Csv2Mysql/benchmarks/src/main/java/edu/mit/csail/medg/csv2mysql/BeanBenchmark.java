@@ -0,0 +1,132 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.StringReader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.opencsv.bean.BeanToCsv;
+import com.opencsv.bean.ColumnPositionMappingStrategy;
+import com.opencsv.bean.CsvToBean;
+import com.opencsv.bean.HeaderColumnNameMappingStrategy;
+
+/** Measures CsvToBean.parse, reading an in-memory document of {@link #rows} rows into beans with int,
+ * long, double, boolean, String and LocalDate properties, so that the binding of values to setters is
+ * timed along with the parsing, with and without worker threads.  Compare with ReaderBenchmark for the cost of the parsing alone.
+ * Also measures BeanToCsv.write of the same beans, into a Writer that discards its output.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BeanBenchmark {
+
+	@Param({"1000"})
+	int rows;
+
+	// CsvToBean.setWorkers; 0 makes the beans in the benchmark's thread
+	@Param({"0", "4"})
+	int workers;
+
+	String doc;
+	List<Visit> visits;
+
+	/** A row of the document */
+	public static class Visit {
+		int id;
+		long patient;
+		double score;
+		boolean admitted;
+		String unit;
+		LocalDate date;
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public void setPatient(long patient) {
+			this.patient = patient;
+		}
+
+		public long getPatient() {
+			return patient;
+		}
+
+		public void setScore(double score) {
+			this.score = score;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public void setAdmitted(boolean admitted) {
+			this.admitted = admitted;
+		}
+
+		public boolean isAdmitted() {
+			return admitted;
+		}
+
+		public void setUnit(String unit) {
+			this.unit = unit;
+		}
+
+		public String getUnit() {
+			return unit;
+		}
+
+		public void setDate(LocalDate date) {
+			this.date = date;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("id,patient,score,admitted,unit,date\n");
+		for (int i = 0; i < rows; i++) {
+			sb.append(i).append(',').append(3000000000L + i * 7).append(',').append(i * 0.37).append(',')
+				.append(i % 3 == 0).append(",ICU ").append(i % 12).append(",2015-")
+				.append(String.format("%02d-%02d", 1 + i % 12, 1 + i % 28)).append('\n');
+		}
+		doc = sb.toString();
+		visits = parse();
+	}
+
+	@Benchmark
+	public List<Visit> parse() {
+		HeaderColumnNameMappingStrategy<Visit> mapper = new HeaderColumnNameMappingStrategy<Visit>();
+		mapper.setType(Visit.class);
+		CsvToBean<Visit> csvToBean = new CsvToBean<Visit>();
+		csvToBean.setWorkers(workers);
+		return csvToBean.parse(mapper, new StringReader(doc));
+	}
+
+	@Benchmark
+	public boolean write() {
+		ColumnPositionMappingStrategy<Visit> mapper = new ColumnPositionMappingStrategy<Visit>();
+		mapper.setType(Visit.class);
+		mapper.setColumnMapping("id", "patient", "score", "admitted", "unit", "date");
+		return new BeanToCsv<Visit>().write(mapper, Writer.nullWriter(), visits.iterator());
+	}
+}
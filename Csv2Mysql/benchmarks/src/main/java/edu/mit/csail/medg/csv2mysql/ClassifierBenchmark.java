@@ -0,0 +1,68 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the per-value classifiers that Csv2Mysql applies to every field, on values that each
+ * accepts and on values that it rejects, since most calls in a real file are rejections.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassifierBenchmark {
+
+	@Param({"2015-07-26", "2015-07-26 06:06:31", "26-jul-2015", "26-jul-2015 06:06:31 US/Eastern",
+		"61.691", "1.5E3", "9223372036854775807", "note 32075, with comma"})
+	String value;
+
+	@Benchmark
+	public boolean isDate() {
+		return Csv2Mysql.isDate(value);
+	}
+
+	@Benchmark
+	public boolean isTime() {
+		return Csv2Mysql.isTime(value);
+	}
+
+	@Benchmark
+	public boolean isDateTime() {
+		return Csv2Mysql.isDateTime(value);
+	}
+
+	@Benchmark
+	public boolean isOracleDate() {
+		return Csv2Mysql.isOracleDate(value);
+	}
+
+	@Benchmark
+	public boolean isOracleDateTime() {
+		return Csv2Mysql.isOracleDateTime(value);
+	}
+
+	@Benchmark
+	public int floatKind() {
+		return Csv2Mysql.floatKind(value);
+	}
+
+	@Benchmark
+	public BigInteger interpretAsBigInt() {
+		return Csv2Mysql.interpretAsBigInt(value);
+	}
+
+	@Benchmark
+	public long decimalShape() {
+		return Csv2Mysql.decimalShape(value);
+	}
+}
@@ -0,0 +1,229 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/** Writes synthetic csv files that resemble the feeds Csv2Mysql is used on, for benchmarking.  The
+ * output depends only on the scenario, the seed and the target size, so a run can be reproduced on any
+ * machine.  The scenarios are:
+ * <dl>
+ * <dt>wide</dt><dd>500 columns of integers, floats, short codes, dates and words</dd>
+ * <dt>text</dt><dd>long quoted text fields with embedded commas, quotes and line breaks</dd>
+ * <dt>ids</dt><dd>dense, sparse and scattered unique integer IDs, as seen by -k</dd>
+ * <dt>oracle</dt><dd>Oracle-style dates and datetimes with time zones</dd>
+ * <dt>mixed</dt><dd>columns that mix integers, decimals, exponents and NULLs</dd>
+ * </dl>
+ * Usage:
+ * <pre>DatasetGenerator [-seed n] [-size MB] [-gzip] [-d dir] scenario ...</pre>
+ * writes <i>dir</i>/<i>scenario</i>.csv (or .csv.gz) of about the given size before compression.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class DatasetGenerator {
+
+	/** The scenarios that can be generated */
+	public static final String[] SCENARIOS = {"wide", "text", "ids", "oracle", "mixed"};
+
+	static final String[] codes = {"ER", "ICU", "Surgery", "Cardiology", "Oncology", "Pediatrics", "Radiology", "Neuro"};
+	static final String[] words = {"patient", "reported", "mild", "pain", "after", "the", "procedure", "and",
+		"was", "discharged", "with", "instructions", "to", "return", "if", "symptoms", "worsen", "follow-up",
+		"in", "two", "weeks", "blood", "pressure", "normal", "no", "fever"};
+	static final String[] months = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+	static final String[] zones = {"US/Eastern", "US/Pacific", "UTC"};
+
+	public static void main(String[] args) throws IOException {
+		long seed = 42;
+		long sizeMB = 64;
+		boolean gzip = false;
+		File dir = new File(".");
+		ArrayList<String> scenarios = new ArrayList<String>();
+		for (int a = 0; a < args.length; a++) {
+			String arg = args[a];
+			if (arg.equals("-seed") && a+1 < args.length) seed = Long.parseLong(args[++a]);
+			else if (arg.equals("-size") && a+1 < args.length) sizeMB = Long.parseLong(args[++a]);
+			else if (arg.equals("-gzip")) gzip = true;
+			else if (arg.equals("-d") && a+1 < args.length) dir = new File(args[++a]);
+			else scenarios.add(arg);
+		}
+		if (scenarios.isEmpty()) {
+			System.out.println("Usage: DatasetGenerator [-seed n] [-size MB] [-gzip] [-d dir] scenario ...");
+			System.out.println("Scenarios: " + String.join(", ", SCENARIOS));
+			return;
+		}
+		dir.mkdirs();
+		for (String sc: scenarios) {
+			File f = new File(dir, sc + (gzip ? ".csv.gz" : ".csv"));
+			long rows = generate(sc, seed, sizeMB << 20, f, gzip);
+			System.out.println(f + ": " + rows + " rows");
+		}
+	}
+
+	/** Writes one scenario's csv file.
+	 * @param scenario one of {@link #SCENARIOS}
+	 * @param seed the random seed
+	 * @param bytes the approximate size of the file before compression
+	 * @param f the file to write
+	 * @param gzip whether to compress it
+	 * @return the number of data rows written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long generate(String scenario, long seed, long bytes, File f, boolean gzip) throws IOException {
+		Random rnd = new Random(seed ^ scenario.hashCode());
+		OutputStream os = new FileOutputStream(f);
+		if (gzip) os = new GZIPOutputStream(os, 1 << 16);
+		long rows = 0;
+		try (Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16)) {
+			StringBuilder sb = new StringBuilder(8192);
+			header(scenario, sb);
+			long written = sb.length();
+			w.append(sb);
+			while (written < bytes) {
+				sb.setLength(0);
+				row(scenario, rows, rnd, sb);
+				sb.append('\n');
+				written += sb.length();
+				w.append(sb);
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	static void header(String scenario, StringBuilder sb) {
+		switch (scenario) {
+		case "wide":
+			for (int c = 0; c < 500; c++) sb.append(c > 0 ? "," : "").append("c").append(c);
+			break;
+		case "text":
+			sb.append("id,title,body,dept");
+			break;
+		case "ids":
+			sb.append("dense,sparse,scattered,code");
+			break;
+		case "oracle":
+			sb.append("id,admitted,discharged,born,amount");
+			break;
+		case "mixed":
+			sb.append("id,count,dose,ratio,lab,big");
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown scenario " + scenario);
+		}
+		sb.append('\n');
+	}
+
+	static void row(String scenario, long i, Random rnd, StringBuilder sb) {
+		switch (scenario) {
+		case "wide":
+			for (int c = 0; c < 500; c++) {
+				if (c > 0) sb.append(',');
+				switch (c % 5) {
+				case 0: sb.append(rnd.nextInt(1000000)); break;
+				case 1: decimal(sb, rnd.nextInt(100000), 3); break;
+				case 2: sb.append(codes[rnd.nextInt(codes.length)]); break;
+				case 3: date(sb, rnd); break;
+				default: sb.append(words[rnd.nextInt(words.length)]);
+				}
+			}
+			break;
+		case "text":
+			sb.append(i).append(",\"");
+			sentence(sb, rnd, 3 + rnd.nextInt(6));
+			sb.append("\",\"");
+			int paragraphs = 1 + rnd.nextInt(4);
+			for (int p = 0; p < paragraphs; p++) {
+				if (p > 0) sb.append('\n');
+				sentence(sb, rnd, 30 + rnd.nextInt(300));
+				if (rnd.nextInt(4) == 0) sb.append(" She said \"\"fine, thanks\"\".");
+			}
+			sb.append("\",").append(codes[rnd.nextInt(codes.length)]);
+			break;
+		case "ids":
+			// An odd multiplier permutes 0..2^40-1, so the scattered IDs are unique but unordered
+			sb.append(i + 1).append(',').append(i * 1000 + rnd.nextInt(1000)).append(',')
+				.append((i * 0x9E3779B97L) & ((1L << 40) - 1)).append(',').append(rnd.nextInt(50));
+			break;
+		case "oracle":
+			sb.append(i).append(',');
+			oracleDate(sb, rnd);
+			time(sb, rnd);
+			sb.append(' ').append(zones[rnd.nextInt(zones.length)]).append(',');
+			oracleDate(sb, rnd);
+			time(sb, rnd);
+			sb.append(',');
+			oracleDate(sb, rnd);
+			sb.append(',');
+			decimal(sb, rnd.nextInt(10000000), 2);
+			break;
+		case "mixed":
+			sb.append(i).append(',');
+			if (rnd.nextInt(20) > 0) sb.append(rnd.nextInt(500));
+			sb.append(',');
+			if (rnd.nextInt(10) < 7) sb.append(rnd.nextInt(100));
+			else decimal(sb, rnd.nextInt(100000), 3);
+			sb.append(',');
+			decimal(sb, rnd.nextInt(1000000), 6);
+			sb.append(',');
+			if (rnd.nextInt(50) == 0) sb.append(rnd.nextInt(9) + 1).append('.').append(rnd.nextInt(10)).append("E-").append(rnd.nextInt(5) + 3);
+			else decimal(sb, rnd.nextInt(100000), 1);
+			sb.append(',').append(rnd.nextLong() >>> 1);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown scenario " + scenario);
+		}
+	}
+
+	/** Appends n / 10^scale with exactly scale digits after the point, e.g., 1234, 2 gives 12.34 */
+	static void decimal(StringBuilder sb, int n, int scale) {
+		int p = 1;
+		for (int i = 0; i < scale; i++) p *= 10;
+		sb.append(n / p).append('.');
+		String frac = Integer.toString(n % p);
+		for (int i = frac.length(); i < scale; i++) sb.append('0');
+		sb.append(frac);
+	}
+
+	static void date(StringBuilder sb, Random rnd) {
+		sb.append(1930 + rnd.nextInt(90)).append('-');
+		twoDigits(sb, 1 + rnd.nextInt(12));
+		sb.append('-');
+		twoDigits(sb, 1 + rnd.nextInt(28));
+	}
+
+	static void oracleDate(StringBuilder sb, Random rnd) {
+		twoDigits(sb, 1 + rnd.nextInt(28));
+		sb.append('-').append(months[rnd.nextInt(12)]).append('-').append(1990 + rnd.nextInt(30));
+	}
+
+	static void time(StringBuilder sb, Random rnd) {
+		sb.append(' ');
+		twoDigits(sb, rnd.nextInt(24));
+		sb.append(':');
+		twoDigits(sb, rnd.nextInt(60));
+		sb.append(':');
+		twoDigits(sb, rnd.nextInt(60));
+	}
+
+	static void twoDigits(StringBuilder sb, int n) {
+		if (n < 10) sb.append('0');
+		sb.append(n);
+	}
+
+	static void sentence(StringBuilder sb, Random rnd, int nWords) {
+		for (int w = 0; w < nWords; w++) {
+			if (w > 0) sb.append(rnd.nextInt(12) == 0 ? ", " : " ");
+			sb.append(words[rnd.nextInt(words.length)]);
+		}
+		sb.append('.');
+	}
+}
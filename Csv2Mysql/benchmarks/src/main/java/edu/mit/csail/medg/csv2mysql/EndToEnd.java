@@ -0,0 +1,151 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/** Runs Csv2Mysql end to end on generated data sets and reports its throughput.
+ *
+ * For each scenario of {@link DatasetGenerator}, plain and gzip'd, the data set is generated (the same
+ * bytes for the same seed and size), and Csv2Mysql is run on it in a fresh JVM, so that no static
+ * state, JIT compilation or garbage from one run affects the next.  The child JVM reports the elapsed
+ * time, its peak heap use and the time spent in garbage collection, from which we compute MB/s (of
+ * uncompressed csv) and rows/s.  A table is printed and the results are written as JSON to
+ * e2e-result.json.  Usage:
+ * <pre>java -cp benchmarks.jar edu.mit.csail.medg.csv2mysql.EndToEnd [-seed n] [-size MB] [-d dir]
+ *     [-J jvm-option]... [-- csv2mysql options] [scenario ...]</pre>
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class EndToEnd {
+
+	static final String resultTag = "E2E-RESULT";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--child")) {
+			child(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		long seed = 42;
+		long sizeMB = 64;
+		File dir = new File(System.getProperty("java.io.tmpdir"), "csv2mysql-e2e");
+		ArrayList<String> jvmArgs = new ArrayList<String>();
+		ArrayList<String> toolArgs = new ArrayList<String>();
+		ArrayList<String> scenarios = new ArrayList<String>();
+		for (int a = 0; a < args.length; a++) {
+			String arg = args[a];
+			if (arg.equals("-seed") && a+1 < args.length) seed = Long.parseLong(args[++a]);
+			else if (arg.equals("-size") && a+1 < args.length) sizeMB = Long.parseLong(args[++a]);
+			else if (arg.equals("-d") && a+1 < args.length) dir = new File(args[++a]);
+			else if (arg.equals("-J") && a+1 < args.length) jvmArgs.add(args[++a]);
+			else if (arg.equals("--")) {
+				while (++a < args.length && !Arrays.asList(DatasetGenerator.SCENARIOS).contains(args[a])) toolArgs.add(args[a]);
+				a--;
+			}
+			else scenarios.add(arg);
+		}
+		if (scenarios.isEmpty()) scenarios.addAll(Arrays.asList(DatasetGenerator.SCENARIOS));
+		dir.mkdirs();
+
+		StringBuilder json = new StringBuilder("[");
+		System.out.println(String.format(Locale.ROOT, "%-8s %-5s %10s %10s %9s %12s %12s %8s",
+				"scenario", "gzip", "MB", "rows", "sec", "MB/s", "rows/s", "GC ms") + "  peak heap MB");
+		for (String sc: scenarios) {
+			for (boolean gzip: new boolean[] {false, true}) {
+				File f = new File(dir, sc + (gzip ? ".csv.gz" : ".csv"));
+				long rows = DatasetGenerator.generate(sc, seed, sizeMB << 20, f, gzip);
+				long[] r = runChild(jvmArgs, toolArgs, new File(dir, sc + ".sql"), f);
+				double sec = r[0] / 1e9;
+				double mb = (double)r[3] / (1 << 20);
+				System.out.println(String.format(Locale.ROOT, "%-8s %-5s %10.1f %10d %9.2f %12.1f %12.0f %8d  %.1f",
+						sc, gzip, mb, rows, sec, mb / sec, rows / sec, r[1], r[2] / (double)(1 << 20)));
+				if (json.length() > 1) json.append(",");
+				json.append(String.format(Locale.ROOT, "\n {\"scenario\": \"%s\", \"gzip\": %b, \"seed\": %d, \"bytes\": %d,"
+						+ " \"rows\": %d, \"seconds\": %.3f, \"mbPerSec\": %.2f, \"rowsPerSec\": %.1f, \"gcMillis\": %d,"
+						+ " \"peakHeapBytes\": %d}", sc, gzip, seed, r[3], rows, sec, mb / sec, rows / sec, r[1], r[2]));
+			}
+		}
+		json.append("\n]\n");
+		try (FileWriter w = new FileWriter("e2e-result.json", StandardCharsets.UTF_8)) {
+			w.write(json.toString());
+		}
+		System.out.println("Results are saved to e2e-result.json");
+	}
+
+	/** Runs Csv2Mysql on one file in a new JVM.
+	 * @return elapsed nanoseconds, GC milliseconds, peak heap bytes and uncompressed input bytes
+	 */
+	static long[] runChild(List<String> jvmArgs, List<String> toolArgs, File out, File in)
+			throws IOException, InterruptedException {
+		ArrayList<String> cmd = new ArrayList<String>();
+		cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		cmd.addAll(jvmArgs);
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(EndToEnd.class.getName());
+		cmd.add("--child");
+		cmd.add("-o");
+		cmd.add(out.getPath());
+		cmd.addAll(toolArgs);
+		cmd.add(in.getPath());
+		Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+		long[] ans = null;
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = r.readLine()) != null) {
+				if (line.startsWith(resultTag)) {
+					String[] parts = line.substring(resultTag.length()).trim().split(" ");
+					ans = new long[parts.length];
+					for (int i = 0; i < parts.length; i++) ans[i] = Long.parseLong(parts[i]);
+				}
+				else System.err.println("  " + line);
+			}
+		}
+		if (p.waitFor() != 0 || ans == null) throw new IOException("Csv2Mysql failed on " + in);
+		return ans;
+	}
+
+	/** In the child JVM: runs Csv2Mysql and prints the measurements on one tagged line. */
+	static void child(String[] args) throws IOException {
+		List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+		List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+		long gc0 = 0;
+		for (GarbageCollectorMXBean gc: gcs) gc0 += Math.max(0, gc.getCollectionTime());
+		for (MemoryPoolMXBean pool: pools) pool.resetPeakUsage();
+		long t0 = System.nanoTime();
+		Csv2Mysql.main(args);
+		long elapsed = System.nanoTime() - t0;
+		long gc1 = 0;
+		for (GarbageCollectorMXBean gc: gcs) gc1 += Math.max(0, gc.getCollectionTime());
+		long peak = 0;
+		for (MemoryPoolMXBean pool: pools) {
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		System.out.println(resultTag + " " + elapsed + " " + (gc1 - gc0) + " " + peak + " " + inputBytes(args[args.length - 1]));
+	}
+
+	/** The size of the input before compression, i.e., the number of bytes Csv2Mysql actually parsed. */
+	static long inputBytes(String name) throws IOException {
+		File f = new File(name);
+		if (!name.endsWith(".gz")) return f.length();
+		long n = 0;
+		byte[] buf = new byte[1 << 16];
+		try (java.util.zip.GZIPInputStream in = new java.util.zip.GZIPInputStream(new java.io.FileInputStream(f))) {
+			int k;
+			while ((k = in.read(buf)) > 0) n += k;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,62 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.opencsv.CSVParser;
+
+/** Measures CSVParser on single lines of various shapes, and on a quoted field that spans lines.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+
+	@Param({"plain", "quoted", "wide"})
+	String shape;
+
+	CSVParser parser;
+	String line;
+	String[] multi = {"17,\"a field that", "runs over three", "lines\",2015-07-26,41.5"};
+
+	@Setup
+	public void setup() {
+		parser = new CSVParser();
+		switch (shape) {
+		case "plain":
+			line = "17,M,89,61.691,1964-12-26,2015-04-19 03:57:20,note 32075,11.03,ICU";
+			break;
+		case "quoted":
+			line = "17,\"M\",89,\"61.691\",\"1964-12-26\",\"note 32075, with \"\"comma\"\"\",\"11.03\",\"ICU\"";
+			break;
+		default:
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 200; i++) sb.append(i > 0 ? "," : "").append("value").append(i);
+			line = sb.toString();
+		}
+	}
+
+	@Benchmark
+	public String[] parseLine() throws IOException {
+		return parser.parseLine(line);
+	}
+
+	@Benchmark
+	public String[] parseLineMulti() throws IOException {
+		String[] ans = null;
+		for (String part: multi) ans = parser.parseLineMulti(part);
+		return ans;
+	}
+}
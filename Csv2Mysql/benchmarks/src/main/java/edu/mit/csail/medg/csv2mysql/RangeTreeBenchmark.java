@@ -0,0 +1,60 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures RangeTree.add on the kinds of key streams that -k sees: dense keys in order, which
+ * collapse into a single range; sparse keys in order, each of which is a range of its own; and the
+ * dense keys shuffled, which create and then merge many ranges.  Each operation adds {@link #keys}
+ * keys to a new tree.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RangeTreeBenchmark {
+
+	@Param({"dense", "sparse", "random"})
+	String pattern;
+
+	@Param({"10000"})
+	int keys;
+
+	BigInteger[] stream;
+
+	@Setup
+	public void setup() {
+		stream = new BigInteger[keys];
+		for (int i = 0; i < keys; i++) {
+			stream[i] = BigInteger.valueOf(pattern.equals("sparse") ? 1000L * i : i);
+		}
+		if (pattern.equals("random")) {
+			Random rnd = new Random(0x5eed);
+			for (int i = keys - 1; i > 0; i--) {
+				int j = rnd.nextInt(i + 1);
+				BigInteger t = stream[i];
+				stream[i] = stream[j];
+				stream[j] = t;
+			}
+		}
+	}
+
+	@Benchmark
+	public RangeTree add() {
+		RangeTree t = new RangeTree();
+		for (BigInteger k: stream) t.add(k);
+		return t;
+	}
+}
@@ -0,0 +1,57 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.opencsv.CSVReader;
+
+/** Measures CSVReader.readNext over an in-memory document, so that only parsing and line assembly
+ * are timed, not the file system.  Each operation reads the whole document of {@link #rows} rows.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReaderBenchmark {
+
+	@Param({"1000"})
+	int rows;
+
+	@Param({"false", "true"})
+	boolean multiLine;
+
+	String doc;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rows; i++) {
+			sb.append(i).append(",M,").append(i % 97).append(',').append(i * 0.37).append(",1964-12-26,");
+			if (multiLine && i % 10 == 0) sb.append("\"note ").append(i).append(",\nsecond line\"");
+			else sb.append("\"note ").append(i).append(", with comma\"");
+			sb.append(",ICU\n");
+		}
+		doc = sb.toString();
+	}
+
+	@Benchmark
+	public void readNext(Blackhole bh) throws IOException {
+		try (CSVReader r = new CSVReader(new StringReader(doc))) {
+			String[] line;
+			while ((line = r.readNext()) != null) bh.consume(line);
+		}
+	}
+}
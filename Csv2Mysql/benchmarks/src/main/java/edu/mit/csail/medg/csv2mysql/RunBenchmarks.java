@@ -0,0 +1,23 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.openjdk.jmh.Main;
+
+/** Runs the JMH benchmarks, writing the results as JSON to jmh-result.json unless another result
+ * format or file is given.  All arguments are passed on to JMH, e.g., a regular expression to select
+ * benchmarks, or -p to override a parameter.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class RunBenchmarks {
+
+	public static void main(String[] args) throws Exception {
+		ArrayList<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+		if (!jmhArgs.contains("-rf")) jmhArgs.addAll(Arrays.asList("-rf", "json"));
+		if (!jmhArgs.contains("-rff")) jmhArgs.addAll(Arrays.asList("-rff", "jmh-result.json"));
+		Main.main(jmhArgs.toArray(new String[0]));
+	}
+}
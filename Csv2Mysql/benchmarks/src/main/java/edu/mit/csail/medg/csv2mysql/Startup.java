@@ -0,0 +1,122 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/** Measures how long Csv2Mysql takes, from the start of its process to its end, on a small file, for
+ * which the time is mostly spent starting the JVM and loading classes.  Each available way of starting
+ * it is timed: the plain jar, the jar with its class-data-sharing archive (made by mvn package), and the
+ * GraalVM native executable (made by mvn -Pnative package).  Each is run once to warm the file system
+ * cache and then -n times, alternating among them, and the minimum, median and mean times are printed and
+ * written as JSON to startup-result.json.  Usage:
+ * <pre>java -cp benchmarks.jar edu.mit.csail.medg.csv2mysql.Startup [-n runs] [-size KB] [-d dir]
+ *     [-jar csv2mysql.jar] [-cds csv2mysql.jsa] [-native csv2mysql] [-- csv2mysql options]</pre>
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class Startup {
+
+	public static void main(String[] args) throws Exception {
+		int runs = 20;
+		long sizeKB = 64;
+		File dir = new File(System.getProperty("java.io.tmpdir"), "csv2mysql-startup");
+		File jar = new File("tool/target/csv2mysql.jar");
+		File cds = null;
+		File exe = null;
+		ArrayList<String> toolArgs = new ArrayList<String>();
+		for (int a = 0; a < args.length; a++) {
+			String arg = args[a];
+			if (arg.equals("-n") && a+1 < args.length) runs = Integer.parseInt(args[++a]);
+			else if (arg.equals("-size") && a+1 < args.length) sizeKB = Long.parseLong(args[++a]);
+			else if (arg.equals("-d") && a+1 < args.length) dir = new File(args[++a]);
+			else if (arg.equals("-jar") && a+1 < args.length) jar = new File(args[++a]);
+			else if (arg.equals("-cds") && a+1 < args.length) cds = new File(args[++a]);
+			else if (arg.equals("-native") && a+1 < args.length) exe = new File(args[++a]);
+			else if (arg.equals("--")) {
+				toolArgs.addAll(Arrays.asList(args).subList(a + 1, args.length));
+				break;
+			}
+		}
+		// The archive and executable are looked for next to the jar, where the build leaves them
+		if (cds == null) cds = new File(jar.getParentFile(), "csv2mysql.jsa");
+		if (exe == null) exe = new File(jar.getParentFile(), "csv2mysql");
+		if (!jar.isFile()) throw new IOException("No jar " + jar + "; give its place with -jar");
+		dir.mkdirs();
+		File in = new File(dir, "mixed.csv");
+		DatasetGenerator.generate("mixed", 42, sizeKB << 10, in, false);
+		File out = new File(dir, "mixed.sql");
+
+		String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<List<String>> commands = new ArrayList<List<String>>();
+		names.add("jar");
+		commands.add(command(Arrays.asList(java, "-jar", jar.getAbsolutePath()), toolArgs, out, in));
+		if (cds.isFile()) {
+			names.add("jar+cds");
+			commands.add(command(Arrays.asList(java, "-XX:SharedArchiveFile=" + cds.getAbsolutePath(), "-Xshare:auto",
+					"-jar", jar.getAbsolutePath()), toolArgs, out, in));
+		}
+		else System.out.println("No class-data-sharing archive " + cds);
+		if (exe.isFile() && exe.canExecute()) {
+			names.add("native");
+			commands.add(command(Arrays.asList(exe.getAbsolutePath()), toolArgs, out, in));
+		}
+		else System.out.println("No native executable " + exe);
+
+		long[][] times = new long[names.size()][runs];
+		for (List<String> cmd: commands) run(cmd);
+		for (int r = 0; r < runs; r++) {
+			for (int k = 0; k < commands.size(); k++) times[k][r] = run(commands.get(k));
+		}
+
+		StringBuilder json = new StringBuilder("[");
+		System.out.println(String.format(Locale.ROOT, "%-8s %6s %9s %9s %9s", "start", "runs", "min ms", "median ms", "mean ms"));
+		for (int k = 0; k < names.size(); k++) {
+			long[] t = times[k];
+			Arrays.sort(t);
+			double mean = 0;
+			for (long x: t) mean += x;
+			mean /= Math.max(1, runs);
+			double min = t[0] / 1e6, median = t[runs / 2] / 1e6;
+			mean /= 1e6;
+			System.out.println(String.format(Locale.ROOT, "%-8s %6d %9.1f %9.1f %9.1f", names.get(k), runs, min, median, mean));
+			if (json.length() > 1) json.append(",");
+			json.append(String.format(Locale.ROOT, "\n {\"start\": \"%s\", \"runs\": %d, \"inputBytes\": %d,"
+					+ " \"minMillis\": %.2f, \"medianMillis\": %.2f, \"meanMillis\": %.2f}",
+					names.get(k), runs, in.length(), min, median, mean));
+		}
+		json.append("\n]\n");
+		try (FileWriter w = new FileWriter("startup-result.json", StandardCharsets.UTF_8)) {
+			w.write(json.toString());
+		}
+		System.out.println("Results are saved to startup-result.json");
+	}
+
+	/** @return the command that starts Csv2Mysql as given by start, on in, writing to out */
+	static List<String> command(List<String> start, List<String> toolArgs, File out, File in) {
+		ArrayList<String> cmd = new ArrayList<String>(start);
+		cmd.add("-o");
+		cmd.add(out.getPath());
+		cmd.addAll(toolArgs);
+		cmd.add(in.getPath());
+		return cmd;
+	}
+
+	/** Runs a command to its end, discarding its output.
+	 * @return the elapsed nanoseconds
+	 */
+	static long run(List<String> cmd) throws IOException, InterruptedException {
+		long t0 = System.nanoTime();
+		Process p = new ProcessBuilder(cmd).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+		if (p.waitFor() != 0) throw new IOException("Failed: " + String.join(" ", cmd));
+		return System.nanoTime() - t0;
+	}
+}
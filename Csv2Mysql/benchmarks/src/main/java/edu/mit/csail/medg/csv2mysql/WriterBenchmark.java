@@ -0,0 +1,46 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.opencsv.CSVWriter;
+
+/** Measures CSVWriter.writeNext into a Writer that discards its output, so that only quoting and
+ * escaping are timed.
+ *
+ * @author psz@mit.edu
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WriterBenchmark {
+
+	@Param({"plain", "escaped"})
+	String shape;
+
+	CSVWriter writer;
+	String[] row;
+
+	@Setup
+	public void setup() {
+		writer = new CSVWriter(Writer.nullWriter());
+		row = shape.equals("plain")
+				? new String[] {"17", "M", "89", "61.691", "1964-12-26", "2015-04-19 03:57:20", "note 32075", "11.03", "ICU"}
+				: new String[] {"17", "M", "89", "61.691", "1964-12-26", "say \"hi\"", "note 32075,\nwith comma", "11.03", "ICU"};
+	}
+
+	@Benchmark
+	public void writeNext() {
+		writer.writeNext(row);
+	}
+}
@@ -0,0 +1,151 @@
+package com.opencsv;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, so that the thread writing lines does not also pay for encoding,
+ * compressing and writing them.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the buffers of a CSVWriter to a Writer in a background thread.  There are two buffers: while
+ * one is written, the CSVWriter fills the other, and it waits only if it fills its buffer before the
+ * other has been written.  The first error in writing is kept, later buffers are discarded, and the error
+ * is thrown to the CSVWriter at its next hand-off, flush or close.
+ */
+final class AsyncOutput {
+   private final Writer out;
+   private final Thread thread;
+   // The buffer the CSVWriter will fill next, once the background thread has finished with it
+   private char[] spare;
+   // The buffer being written, and its length, or null
+   private char[] pending;
+   private int pendingLength;
+   private boolean closed;
+   private IOException error;
+
+   /**
+    * @param out        - the Writer to write to, which only the background thread uses until close.
+    * @param bufferSize - the size of the spare buffer.
+    */
+   AsyncOutput(Writer out, int bufferSize) {
+      this.out = out;
+      this.spare = new char[bufferSize];
+      thread = new Thread(this::run, "opencsv-writer");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Hands a full buffer to the background thread.
+    *
+    * @param full   - the buffer.
+    * @param length - the number of characters in it.
+    * @return the buffer to fill next.
+    * @throws IOException - the first error in writing an earlier buffer.
+    */
+   synchronized char[] swap(char[] full, int length) throws IOException {
+      awaitWritten();
+      throwError();
+      if (length == 0) {
+         return full;
+      }
+      char[] next = spare;
+      spare = null;
+      pending = full;
+      pendingLength = length;
+      notifyAll();
+      return next;
+   }
+
+   /**
+    * Waits until all the buffers handed off have been written, then flushes the Writer.
+    *
+    * @throws IOException - the first error in writing, or in flushing.
+    */
+   synchronized void flush() throws IOException {
+      awaitWritten();
+      throwError();
+      out.flush();
+   }
+
+   /**
+    * Waits until all the buffers handed off have been written, stops the background thread and closes
+    * the Writer.
+    *
+    * @throws IOException - the first error in writing, or in closing.
+    */
+   synchronized void close() throws IOException {
+      if (closed) {
+         return;
+      }
+      try {
+         awaitWritten();
+      } finally {
+         closed = true;
+         notifyAll();
+      }
+      try {
+         out.close();
+      } catch (IOException e) {
+         if (error == null) {
+            error = e;
+         }
+      }
+      throwError();
+   }
+
+   private void awaitWritten() throws InterruptedIOException {
+      while (pending != null) {
+         try {
+            wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for csv output to be written");
+         }
+      }
+   }
+
+   private void throwError() throws IOException {
+      if (error != null) {
+         throw new IOException("Error writing csv output", error);
+      }
+   }
+
+   private void run() {
+      while (true) {
+         char[] b;
+         int n;
+         synchronized (this) {
+            while (pending == null && !closed) {
+               try {
+                  wait();
+               } catch (InterruptedException e) {
+                  return;
+               }
+            }
+            if (pending == null) {
+               return;
+            }
+            b = pending;
+            n = pendingLength;
+         }
+         IOException failure = null;
+         try {
+            out.write(b, 0, n);
+         } catch (IOException e) {
+            failure = e;
+         }
+         synchronized (this) {
+            if (failure != null && error == null) {
+               error = failure;
+            }
+            spare = b;
+            pending = null;
+            notifyAll();
+         }
+      }
+   }
+}
@@ -24,8 +24,7 @@ package com.opencsv;
 //import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A very simple CSV parser released under a commercial-friendly license.
@@ -44,6 +43,10 @@ public class CSVParser {
      * The average size of a line read by openCSV (used for setting the size of StringBuilders).
      */
     public static final int INITIAL_READ_SIZE = 128;
+    /**
+     * The largest field buffer kept from one record to the next.
+     */
+    private static final int MAX_RETAINED_SIZE = 1 << 16;
     /**
      * The default quote character to use if none is supplied to the
      * constructor.
@@ -96,8 +99,14 @@ public class CSVParser {
      * Skip over quotation characters when parsing.
      */
     private final boolean ignoreQuotations;
-    private String pending;
+    // Whether sb holds a quoted field that continues on the next line
+    private boolean pending;
     private boolean inField = false;
+    // The field being parsed, reused from field to field and line to line.  A quoted field that spans
+    // lines grows in place, so that its lines are copied once rather than once per following line.
+    private StringBuilder sb = new StringBuilder(INITIAL_READ_SIZE);
+    // The fields of the line being parsed by parseLine, reused from line to line
+    private final Tokens tokens = new Tokens();
 
     /**
      * Constructs CSVParser using a comma for the separator.
@@ -260,7 +269,7 @@ public class CSVParser {
      * @return true if something was left over from last call(s)
      */
     public boolean isPending() {
-        return pending != null;
+        return pending;
     }
 
     /**
@@ -275,6 +284,21 @@ public class CSVParser {
         return parseLine(nextLine, true);
     }
 
+    /**
+     * Parses an incoming String, which may be one of several lines of a record, giving each field it
+     * completes to a visitor, in the parser's own buffer, rather than returning them as an array of Strings.
+     * A quoted field that continues on the next line is kept until that line is parsed, as by parseLineMulti.
+     *
+     * @param nextLine current line to be processed
+     * @param visitor receives the fields completed on this line
+     * @param index the index of the first field completed on this line, in its record
+     * @return the index of the next field of the record
+     * @throws IOException if bad things happen during the read
+     */
+    public int parseLineMulti(String nextLine, RowVisitor visitor, int index) throws IOException {
+        return parseLine(nextLine, true, visitor, index);
+    }
+
     /**
      * Parses an incoming String and returns an array of elements.  This method is used when all data is contained
      * in a single line.
@@ -297,28 +321,85 @@ public class CSVParser {
      */
     private String[] parseLine(String nextLine, boolean multi) throws IOException {
 
-        if (!multi && pending != null) {
-            pending = null;
+        if (!multi && pending) {
+            pending = false;
         }
 
         if (nextLine == null) {
-            if (pending != null) {
-                String s = pending;
-                pending = null;
+            if (pending) {
+                String s = sb.toString();
+                pending = false;
+                sb.setLength(0);
                 return new String[]{s};
             } else {
                 return null;
             }
         }
 
-        List<String> tokensOnThisLine = new ArrayList<>();
-        StringBuilder sb = new StringBuilder(INITIAL_READ_SIZE);
+        Tokens tokensOnThisLine = this.tokens;
+        tokensOnThisLine.clear();
+        parseLine(nextLine, multi, tokensOnThisLine, 0);
+        return tokensOnThisLine.toArray();
+    }
+
+    /**
+     * Collects the fields of a line as Strings, for parseLine.
+     */
+    private static final class Tokens implements RowVisitor {
+        private String[] fields = new String[16];
+        private int count;
+
+        @Override
+        public void field(int index, CharSequence value) {
+            if (count == fields.length) {
+                fields = Arrays.copyOf(fields, 2 * count);
+            }
+            fields[count++] = value.toString();
+        }
+
+        @Override
+        public void endRecord() {
+        }
+
+        void clear() {
+            Arrays.fill(fields, 0, count, null);
+            count = 0;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(fields, count);
+        }
+    }
+
+    /**
+     * Parses an incoming String, giving each field to a visitor.
+     *
+     * @param nextLine the string to parse, which is not null
+     * @param multi Does it take multiple lines to form a single record.
+     * @param visitor receives the fields completed on this line
+     * @param index the index of the first field completed on this line
+     * @return the index of the next field
+     * @throws IOException if bad things happen during the read
+     */
+    private int parseLine(String nextLine, boolean multi, RowVisitor visitor, int index) throws IOException {
+
+        if (!multi && pending) {
+            pending = false;
+        }
+
         boolean inQuotes = false;
-        if (pending != null) {
-            sb.append(pending);
-            pending = null;
+        if (pending) {
+            // the field continues where the last line left it
+            pending = false;
             inQuotes = !this.ignoreQuotations;//true;
+        } else {
+            if (sb.capacity() > MAX_RETAINED_SIZE) {
+                // do not hold on to the space of an unusually long field
+                sb = new StringBuilder(INITIAL_READ_SIZE);
+            }
+            sb.setLength(0);
         }
+        StringBuilder sb = this.sb;
         for (int i = 0; i < nextLine.length(); i++) {
 
             char c = nextLine.charAt(i);
@@ -351,7 +432,7 @@ public class CSVParser {
                 }
                 inField = !inField;
             } else if (c == separator && !(inQuotes && !ignoreQuotations)) {
-                tokensOnThisLine.add(sb.toString());
+                visitor.field(index++, sb);
                 sb.setLength(0);
                 inField = false;
             } else {
@@ -366,8 +447,8 @@ public class CSVParser {
             if (multi) {
                 // continuing a quoted section, re-append newline
                 sb.append('\n');
-                pending = sb.toString();
-                sb = null; // this partial content is not to be added to field list yet
+                pending = true;
+                return index; // this partial content is not to be added to field list yet
             } else {
                 throw new IOException("Un-terminated quoted field at end of CSV line");
             }
@@ -375,10 +456,9 @@ public class CSVParser {
             inField = false;
         }
 
-        if (sb != null) {
-            tokensOnThisLine.add(sb.toString());
-        }
-        return tokensOnThisLine.toArray(new String[tokensOnThisLine.size()]);
+        visitor.field(index++, sb);
+        sb.setLength(0);
+        return index;
 
     }
 
@@ -22,9 +22,14 @@ import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A very simple CSV reader released under a commercial-friendly license.
@@ -267,34 +272,50 @@ public class CSVReader implements Closeable, Iterable<String[]> {
     public String[] readNext() throws IOException {
 
         String[] result = null;
+        // The fields of a record of several lines, gathered once rather than copied at each line
+        List<String> more = null;
         do {
             String nextLine = getNextLine();
             if (!hasNext) {
-                return result; // should throw if still pending?
+                break; // should throw if still pending?
             }
             String[] r = parser.parseLineMulti(nextLine);
             if (r.length > 0) {
                 if (result == null) {
                     result = r;
                 } else {
-                    result = combineResultsFromMultipleReads(result, r);
+                    if (more == null) {
+                        more = new ArrayList<>(Arrays.asList(result));
+                    }
+                    Collections.addAll(more, r);
                 }
             }
         } while (parser.isPending());
-        return result;
+        return more == null ? result : more.toArray(new String[more.size()]);
     }
 
     /**
-     * For multi line records this method combines the current result with the result from previous read(s).
-     * @param buffer - previous data read for this record
-     * @param lastRead - latest data read for this record.
-     * @return String array with union of the buffer and lastRead arrays.
+     * Reads the rest of the records, giving each field to a visitor rather than making an array of Strings
+     * for each record.  The visitor sees the same fields, in the same records, as readNext would return,
+     * in the parser's own buffer.
+     *
+     * @param visitor receives the fields and the ends of the records.
+     * @throws IOException if bad things happen during the read
      */
-    private String[] combineResultsFromMultipleReads(String[] buffer, String[] lastRead) {
-        String[] t = new String[buffer.length + lastRead.length];
-        System.arraycopy(buffer, 0, t, 0, buffer.length);
-        System.arraycopy(lastRead, 0, t, buffer.length, lastRead.length);
-        return t;
+    public void forEachRecord(RowVisitor visitor) throws IOException {
+        while (hasNext) {
+            int fields = 0;
+            do {
+                String nextLine = getNextLine();
+                if (!hasNext) {
+                    break;
+                }
+                fields = parser.parseLineMulti(nextLine, visitor, fields);
+            } while (parser.isPending());
+            if (fields > 0) {
+                visitor.endRecord();
+            }
+        }
     }
 
     /**
@@ -324,6 +345,9 @@ public class CSVReader implements Closeable, Iterable<String[]> {
 
     /**
      * Checks to see if the file is closed.
+     *
+     * This peeks at the next character rather than asking whether the reader is ready(), which is false
+     * whenever a pipe or socket has no data waiting yet, so that a reader on one would stop early.
      * @return true if the reader can no longer be read from.
      */
     private boolean isClosed() {
@@ -331,7 +355,7 @@ public class CSVReader implements Closeable, Iterable<String[]> {
             return false;
         }
         try {
-            return !br.ready();
+            return lineReader.isAtEnd();
         } catch (IOException e) {
             return true;
         }
@@ -358,6 +382,24 @@ public class CSVReader implements Closeable, Iterable<String[]> {
         }
     }
 
+    /**
+     * Creates a Stream of the lines of the csv data, which are read only as the Stream is consumed.
+     * Sequentially, the lines are read one at a time; in parallel, the thread that reads hands off batches
+     * of lines to the others.  The Stream is ordered, and closing it closes this reader.  Errors in reading
+     * are thrown as UncheckedIOExceptions.
+     *
+     * @return a Stream of String[].
+     */
+    public Stream<String[]> stream() {
+        return StreamSupport.stream(new CSVSpliterator(this), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * Returns if the CSVReader will verify the reader before each read.
      * <p>
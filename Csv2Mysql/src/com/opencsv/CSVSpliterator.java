@@ -0,0 +1,95 @@
+package com.opencsv;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, so that the lines of a csv file can be processed by a parallel
+ * Stream.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over the lines of a CSVReader.  Used sequentially, it reads one line at a time.  Split, it
+ * reads a batch of lines and hands them off as an array, so that a parallel Stream's other threads have
+ * work while this one reads on; each batch is larger than the last, up to MAX_BATCH lines, so that a short
+ * file is still split and a long one is not split too finely.
+ */
+final class CSVSpliterator implements Spliterator<String[]> {
+   static final int BATCH_UNIT = 1 << 10;
+   static final int MAX_BATCH = 1 << 16;
+
+   private final CSVReader reader;
+   private int batch = 0;
+   private boolean done;
+
+   /**
+    * @param reader - reader for the csv data.
+    */
+   CSVSpliterator(CSVReader reader) {
+      this.reader = reader;
+   }
+
+   private String[] readNext() {
+      if (done) {
+         return null;
+      }
+      try {
+         String[] line = reader.readNext();
+         if (line == null) {
+            done = true;
+         }
+         return line;
+      } catch (IOException e) {
+         done = true;
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public boolean tryAdvance(Consumer<? super String[]> action) {
+      String[] line = readNext();
+      if (line == null) {
+         return false;
+      }
+      action.accept(line);
+      return true;
+   }
+
+   @Override
+   public void forEachRemaining(Consumer<? super String[]> action) {
+      for (String[] line; (line = readNext()) != null; ) {
+         action.accept(line);
+      }
+   }
+
+   @Override
+   public Spliterator<String[]> trySplit() {
+      if (done) {
+         return null;
+      }
+      int n = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+      String[][] lines = new String[n][];
+      int j = 0;
+      for (String[] line; j < n && (line = readNext()) != null; ) {
+         lines[j++] = line;
+      }
+      if (j == 0) {
+         return null;
+      }
+      batch = n;
+      return Spliterators.spliterator(lines, 0, j, ORDERED | NONNULL);
+   }
+
+   @Override
+   public long estimateSize() {
+      return Long.MAX_VALUE;
+   }
+
+   @Override
+   public int characteristics() {
+      return ORDERED | NONNULL;
+   }
+}
@@ -24,6 +24,10 @@ import java.util.List;
 /**
  * A very simple CSV writer released under a commercial-friendly license.
  *
+ * Lines are assembled in a buffer and written to the underlying Writer when it fills, so the writer must
+ * be flushed or closed when the last line has been written.  Besides whole lines, a line may be written one
+ * field at a time with writeField, numbers without making Strings of them, and ended with endLine.
+ *
  * @author Glen Smith
  */
 public class CSVWriter implements Closeable, Flushable {
@@ -54,8 +58,18 @@ public class CSVWriter implements Closeable, Flushable {
     * Default line terminator uses platform encoding.
     */
    public static final String DEFAULT_LINE_END = "\n";
+   /**
+    * The size of the buffer in which lines are assembled before they are written.
+    */
+   public static final int BUFFER_SIZE = 1 << 16;
    private Writer rawWriter;
-   private PrintWriter pw;
+   private char[] buf;
+   // If not null, writes the buffers to rawWriter in the background
+   private AsyncOutput async;
+   private int count;
+   // The number of fields written so far on the current line, by writeField
+   private int fields;
+   private boolean error;
    private char separator;
    private char quotechar;
    private char escapechar;
@@ -128,8 +142,27 @@ public class CSVWriter implements Closeable, Flushable {
     * @param lineEnd    the line feed terminator to use
     */
    public CSVWriter(Writer writer, char separator, char quotechar, char escapechar, String lineEnd) {
+      this(writer, separator, quotechar, escapechar, lineEnd, BUFFER_SIZE, false);
+   }
+
+   /**
+    * Constructs CSVWriter with supplied separator, quote char, escape char, line ending and buffering,
+    * for CSVWriterBuilder.
+    *
+    * @param writer     the writer to an underlying CSV source.
+    * @param separator  the delimiter to use for separating entries
+    * @param quotechar  the character to use for quoted elements
+    * @param escapechar the character to use for escaping quotechars or escapechars
+    * @param lineEnd    the line feed terminator to use
+    * @param bufferSize the size of the buffer in which lines are assembled
+    * @param async      true to write the buffers to the writer in a background thread
+    */
+   CSVWriter(Writer writer, char separator, char quotechar, char escapechar, String lineEnd, int bufferSize, boolean async) {
       this.rawWriter = writer;
-      this.pw = new PrintWriter(writer);
+      this.buf = new char[bufferSize];
+      if (async) {
+         this.async = new AsyncOutput(writer, bufferSize);
+      }
       this.separator = separator;
       this.quotechar = quotechar;
       this.escapechar = escapechar;
@@ -210,11 +243,38 @@ public class CSVWriter implements Closeable, Flushable {
          writeColumnNames(rs);
       }
 
+      if (resultService.getClass() == ResultSetHelperService.class) {
+         // Streams the rows, reading the column types only once
+         fields = 0;
+         ((ResultSetHelperService) resultService).writeRows(rs, this, trim);
+         return;
+      }
+
       while (rs.next()) {
          writeNext(resultService.getColumnValues(rs, trim));
       }
    }
 
+   /**
+    * Writes the entire ResultSet to a CSV file, fetching the given number of rows at a time from the
+    * database.
+    *
+    * The caller is responsible for closing the ResultSet.
+    *
+    * @param rs the Result set to write.
+    * @param includeColumnNames  include the column names in the output.
+    * @param trim remove spaces from the data before writing.
+    * @param fetchSize the number of rows to fetch at a time, given to ResultSet.setFetchSize; 0 leaves it
+    *                  to the driver.  Some drivers only honor a fetch size set on the Statement.
+    *
+    * @throws java.io.IOException   thrown by getColumnValue
+    * @throws java.sql.SQLException thrown by getColumnValue, or if the driver refuses the fetch size
+    */
+   public void writeAll(java.sql.ResultSet rs, boolean includeColumnNames, boolean trim, int fetchSize) throws SQLException, IOException {
+      rs.setFetchSize(fetchSize);
+      writeAll(rs, includeColumnNames, trim);
+   }
+
    /**
     * Writes the next line to the file.
     *
@@ -224,43 +284,28 @@ public class CSVWriter implements Closeable, Flushable {
     *                         to values which contain the separator, escape, quote or new line characters.
     */
    public void writeNext(String[] nextLine, boolean applyQuotesToAll) {
+      writeNext((CharSequence[]) nextLine, applyQuotesToAll);
+   }
+
+   /**
+    * Writes the next line to the file, from any CharSequences, e.g., StringBuilders that are reused from
+    * line to line.
+    *
+    * @param nextLine         an array with each comma-separated element as a separate entry.
+    * @param applyQuotesToAll true if all values are to be quoted.  false applies quotes only
+    *                         to values which contain the separator, escape, quote or new line characters.
+    */
+   public void writeNext(CharSequence[] nextLine, boolean applyQuotesToAll) {
 
       if (nextLine == null) {
          return;
       }
 
-      StringBuilder sb = new StringBuilder(INITIAL_STRING_SIZE);
-      for (int i = 0; i < nextLine.length; i++) {
-
-         if (i != 0) {
-            sb.append(separator);
-         }
-
-         String nextElement = nextLine[i];
-
-         if (nextElement == null) {
-            continue;
-         }
-
-         Boolean stringContainsSpecialCharacters = stringContainsSpecialCharacters(nextElement);
-
-         if ((applyQuotesToAll || stringContainsSpecialCharacters) && quotechar != NO_QUOTE_CHARACTER) {
-            sb.append(quotechar);
-         }
-
-         if (stringContainsSpecialCharacters) {
-            sb.append(processLine(nextElement));
-         } else {
-            sb.append(nextElement);
-         }
-
-         if ((applyQuotesToAll || stringContainsSpecialCharacters) && quotechar != NO_QUOTE_CHARACTER) {
-            sb.append(quotechar);
-         }
+      fields = 0;
+      for (CharSequence nextElement : nextLine) {
+         writeField(nextElement, applyQuotesToAll);
       }
-
-      sb.append(lineEnd);
-      pw.write(sb.toString());
+      endLine();
    }
 
    /**
@@ -274,16 +319,8 @@ public class CSVWriter implements Closeable, Flushable {
    }
 
    /**
-    * checks to see if the line contains special characters.
-    * @param line - element of data to check for special characters.
-    * @return true if the line contains the quote, escape, separator, newline or return.
-    */
-   private boolean stringContainsSpecialCharacters(String line) {
-      return line.indexOf(quotechar) != -1 || line.indexOf(escapechar) != -1 || line.indexOf(separator) != -1 || line.contains(DEFAULT_LINE_END) || line.contains("\r");
-   }
-
-   /**
-    * Processes all the characters in a line.
+    * Processes all the characters in a line.  writeNext no longer calls this, but escapes each field as
+    * it copies it into its buffer.
     * @param nextElement - element to process.
     * @return a StringBuilder with the elements data.
     */
@@ -310,37 +347,261 @@ public class CSVWriter implements Closeable, Flushable {
       }
    }
 
+   /**
+    * Writes a field of the current line, after a separator unless it is the first.
+    *
+    * @param value       the value, or null for an empty field.
+    * @param applyQuotes true if the value is to be quoted.  false applies quotes only
+    *                    if it contains the separator, escape, quote or new line characters.
+    */
+   public void writeField(CharSequence value, boolean applyQuotes) {
+      startField();
+      if (value == null) {
+         return;
+      }
+      int n = value.length();
+      // Escaping at most doubles the field, so it is copied without further checks of the buffer
+      reserve(2 * n + 2);
+      char[] b = buf;
+      int start = count;
+      int k = count;
+      boolean quoting = quotechar != NO_QUOTE_CHARACTER;
+      if (applyQuotes && quoting) {
+         b[k++] = quotechar;
+      }
+      boolean special = false;
+      for (int j = 0; j < n; j++) {
+         char c = value.charAt(j);
+         if (c == quotechar || c == escapechar || c == separator || c == '\n' || c == '\r') {
+            if (!special) {
+               special = true;
+               if (!applyQuotes && quoting) {
+                  // Nothing copied so far needed escaping, so the quote just goes in front of it
+                  System.arraycopy(b, start, b, start + 1, k - start);
+                  b[start] = quotechar;
+                  k++;
+               }
+            }
+            if (escapechar != NO_ESCAPE_CHARACTER && (c == quotechar || c == escapechar)) {
+               b[k++] = escapechar;
+            }
+         }
+         b[k++] = c;
+      }
+      if ((applyQuotes || special) && quoting) {
+         b[k++] = quotechar;
+      }
+      count = k;
+   }
+
+   /**
+    * Writes a field of the current line from a Reader, e.g., a CLOB's, which is read to its end but not
+    * closed.  If the value is quoted, it is copied into the buffer as it is read, so it need never be
+    * held whole in memory.
+    *
+    * @param value       the value, or null for an empty field.
+    * @param applyQuotes true if the value is to be quoted.  false applies quotes only
+    *                    if it contains the separator, escape, quote or new line characters.
+    * @throws IOException if the value cannot be read.
+    */
+   public void writeField(Reader value, boolean applyQuotes) throws IOException {
+      if (value != null && !applyQuotes && quotechar != NO_QUOTE_CHARACTER) {
+         // Whether to quote is only known at the end of the value
+         StringBuilder sb = new StringBuilder();
+         char[] chunk = new char[INITIAL_STRING_SIZE * 16];
+         for (int n; (n = value.read(chunk)) != -1; ) {
+            sb.append(chunk, 0, n);
+         }
+         writeField(sb, false);
+         return;
+      }
+      startField();
+      if (value == null) {
+         return;
+      }
+      boolean quote = quotechar != NO_QUOTE_CHARACTER;
+      if (quote) {
+         append(quotechar);
+      }
+      char[] chunk = new char[INITIAL_STRING_SIZE * 16];
+      for (int n; (n = value.read(chunk)) != -1; ) {
+         reserve(2 * n);
+         char[] b = buf;
+         int k = count;
+         for (int j = 0; j < n; j++) {
+            char c = chunk[j];
+            if (escapechar != NO_ESCAPE_CHARACTER && (c == quotechar || c == escapechar)) {
+               b[k++] = escapechar;
+            }
+            b[k++] = c;
+         }
+         count = k;
+      }
+      if (quote) {
+         append(quotechar);
+      }
+   }
+
+   /**
+    * Writes an integer field of the current line, as Long.toString would, but without making a String.
+    *
+    * @param value       the value.
+    * @param applyQuotes true if the value is to be quoted.
+    */
+   public void writeField(long value, boolean applyQuotes) {
+      startField();
+      boolean quote = applyQuotes && quotechar != NO_QUOTE_CHARACTER;
+      if (quote) {
+         append(quotechar);
+      }
+      if (value == Long.MIN_VALUE) {
+         append(Long.toString(value));
+      } else {
+         reserve(20);
+         if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+         }
+         int digits = 1;
+         for (long v = value; v >= 10; v /= 10) {
+            digits++;
+         }
+         count += digits;
+         for (int k = count - 1; k >= count - digits; k--) {
+            buf[k] = (char) ('0' + value % 10);
+            value /= 10;
+         }
+      }
+      if (quote) {
+         append(quotechar);
+      }
+   }
+
+   /**
+    * Ends the line begun by writeField.
+    */
+   public void endLine() {
+      fields = 0;
+      append(lineEnd);
+   }
+
+   private void startField() {
+      if (fields++ != 0) {
+         append(separator);
+      }
+   }
+
+   /**
+    * Makes room in the buffer for n more characters, writing it out if it is too full, and growing it if
+    * n is more than it can hold.
+    */
+   private void reserve(int n) {
+      if (count + n > buf.length) {
+         flushBuffer();
+         if (n > buf.length) {
+            buf = new char[n];
+         }
+      }
+   }
+
+   private void append(char c) {
+      if (count == buf.length) {
+         flushBuffer();
+      }
+      buf[count++] = c;
+   }
+
+   private void append(CharSequence s) {
+      int n = s.length();
+      for (int from = 0; from < n; ) {
+         if (count == buf.length) {
+            flushBuffer();
+         }
+         int to = Math.min(n, from + buf.length - count);
+         if (s instanceof String) {
+            ((String) s).getChars(from, to, buf, count);
+         } else {
+            for (int j = from; j < to; j++) {
+               buf[count + j - from] = s.charAt(j);
+            }
+         }
+         count += to - from;
+         from = to;
+      }
+   }
+
+   /**
+    * Writes the buffer to the underlying writer, or hands it to the background thread to write.  As a
+    * PrintWriter would, remembers rather than throws an error, for checkError; a writer that writes in the
+    * background also throws it from flush and close.
+    */
+   private void flushBuffer() {
+      if (count > 0) {
+         try {
+            if (async != null) {
+               buf = async.swap(buf, count);
+            } else {
+               rawWriter.write(buf, 0, count);
+            }
+         } catch (IOException e) {
+            error = true;
+         }
+         count = 0;
+      }
+   }
+
    /**
     * Flush underlying stream to writer.
     *
+    * If the writer writes in the background, this waits until every line written so far has been written
+    * to the underlying writer, and that writer flushed, and throws the first error in doing so since the
+    * writer was made.  Otherwise, errors are only reported by checkError.
+    *
     * @throws IOException if bad things happen
     */
    public void flush() throws IOException {
-
-      pw.flush();
-
+      flushBuffer();
+      if (async != null) {
+         async.flush();
+         return;
+      }
+      try {
+         rawWriter.flush();
+      } catch (IOException e) {
+         error = true;
+      }
    }
 
    /**
     * Close the underlying stream writer flushing any buffered content.
     *
+    * If the writer writes in the background, this waits until every line has been written, stops the
+    * background thread, and throws the first error in writing since the writer was made.
+    *
     * @throws IOException if bad things happen
     */
    public void close() throws IOException {
+      if (async != null) {
+         flushBuffer();
+         async.close();
+         return;
+      }
       flush();
-      pw.close();
       rawWriter.close();
    }
 
    /**
-    * Checks to see if the there has been an error in the printstream.
+    * Checks to see if the there has been an error writing to the underlying writer.
     *
-    * @return <code>true</code> if the print stream has encountered an error,
-    *          either on the underlying output stream or during a format
-    *          conversion.
+    * @return <code>true</code> if the underlying writer has thrown an IOException.
     */
    public boolean checkError() {
-      return pw.checkError();
+      try {
+         flush();
+      } catch (IOException e) {
+         error = true;
+      }
+      return error;
    }
 
    /**
@@ -0,0 +1,190 @@
+package com.opencsv;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, for writers that compress their output or write it in the
+ * background, which the constructors of CSVWriter cannot express.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builder for creating a CSVWriter, e.g., one that writes gzipped UTF-8 to a file in a background
+ * thread:
+ *
+ * <code>
+ * final CSVWriter writer =
+ * new CSVWriterBuilder(new FileOutputStream("out.csv.gz"))
+ * .withGzip(Deflater.BEST_SPEED)
+ * .withAsync(true)
+ * .build();
+ * </code>
+ *
+ * In the background, the writer's buffers are encoded, compressed and written while the caller fills the
+ * next one.  Its flush and close then wait for everything written so far to reach the OutputStream, and
+ * throw any error in writing it.
+ *
+ * @see CSVWriter
+ */
+public class CSVWriterBuilder {
+
+   private final Writer writer;
+   private final OutputStream out;
+   private char separator = CSVWriter.DEFAULT_SEPARATOR;
+   private char quotechar = CSVWriter.DEFAULT_QUOTE_CHARACTER;
+   private char escapechar = CSVWriter.DEFAULT_ESCAPE_CHARACTER;
+   private String lineEnd = CSVWriter.DEFAULT_LINE_END;
+   private Charset charset = StandardCharsets.UTF_8;
+   private boolean gzip;
+   private int level = Deflater.DEFAULT_COMPRESSION;
+   private int bufferSize = CSVWriter.BUFFER_SIZE;
+   private boolean async;
+
+   /**
+    * Sets the writer to an underlying CSV destination.
+    *
+    * @param writer the writer to an underlying CSV destination.
+    */
+   public CSVWriterBuilder(final Writer writer) {
+      if (writer == null) {
+         throw new IllegalArgumentException("Writer may not be null");
+      }
+      this.writer = writer;
+      this.out = null;
+   }
+
+   /**
+    * Sets the stream to an underlying CSV destination, to which the lines are written in the charset, by
+    * default UTF-8.
+    *
+    * @param out the stream to an underlying CSV destination.
+    */
+   public CSVWriterBuilder(final OutputStream out) {
+      if (out == null) {
+         throw new IllegalArgumentException("OutputStream may not be null");
+      }
+      this.writer = null;
+      this.out = out;
+   }
+
+   /**
+    * @param separator the delimiter to use for separating entries.
+    * @return the CSVWriterBuilder with the separator set.
+    */
+   public CSVWriterBuilder withSeparator(final char separator) {
+      this.separator = separator;
+      return this;
+   }
+
+   /**
+    * @param quotechar the character to use for quoted elements, or CSVWriter.NO_QUOTE_CHARACTER.
+    * @return the CSVWriterBuilder with the quote character set.
+    */
+   public CSVWriterBuilder withQuoteChar(final char quotechar) {
+      this.quotechar = quotechar;
+      return this;
+   }
+
+   /**
+    * @param escapechar the character to use for escaping quotechars or escapechars, or
+    *                   CSVWriter.NO_ESCAPE_CHARACTER.
+    * @return the CSVWriterBuilder with the escape character set.
+    */
+   public CSVWriterBuilder withEscapeChar(final char escapechar) {
+      this.escapechar = escapechar;
+      return this;
+   }
+
+   /**
+    * @param lineEnd the line feed terminator to use.
+    * @return the CSVWriterBuilder with the line end set.
+    */
+   public CSVWriterBuilder withLineEnd(final String lineEnd) {
+      this.lineEnd = lineEnd;
+      return this;
+   }
+
+   /**
+    * Sets the charset in which the lines are written to an OutputStream.
+    *
+    * @param charset the charset.
+    * @return the CSVWriterBuilder with the charset set.
+    */
+   public CSVWriterBuilder withCharset(final Charset charset) {
+      this.charset = charset;
+      return this;
+   }
+
+   /**
+    * Compresses the output to an OutputStream with gzip.  On flush, everything compressed so far is
+    * written to the stream, so that what has been flushed can be decompressed.
+    *
+    * @param level the compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION, or
+    *              Deflater.DEFAULT_COMPRESSION.
+    * @return the CSVWriterBuilder with gzip set.
+    */
+   public CSVWriterBuilder withGzip(final int level) {
+      if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+         throw new IllegalArgumentException("Invalid compression level " + level);
+      }
+      this.gzip = true;
+      this.level = level;
+      return this;
+   }
+
+   /**
+    * @param bufferSize the size of the buffer in which lines are assembled, by default CSVWriter.BUFFER_SIZE.
+    *                   If the writer writes in the background, there are two.
+    * @return the CSVWriterBuilder with the buffer size set.
+    */
+   public CSVWriterBuilder withBufferSize(final int bufferSize) {
+      if (bufferSize < 1) {
+         throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+      }
+      this.bufferSize = bufferSize;
+      return this;
+   }
+
+   /**
+    * Sets whether the writer hands each full buffer to a background thread, which encodes, compresses and
+    * writes it while the caller fills the other.  flush and close then throw any error in writing.
+    *
+    * @param async true to write in the background.
+    * @return the CSVWriterBuilder with async set.
+    */
+   public CSVWriterBuilder withAsync(final boolean async) {
+      this.async = async;
+      return this;
+   }
+
+   /**
+    * Creates the CSVWriter.
+    *
+    * @return the CSVWriter based on the set criteria.
+    * @throws IOException if the gzip header cannot be written.
+    */
+   public CSVWriter build() throws IOException {
+      Writer w = writer;
+      if (w == null) {
+         OutputStream os = out;
+         if (gzip) {
+            final int gzipLevel = level;
+            os = new GZIPOutputStream(out, bufferSize, true) {
+               {
+                  def.setLevel(gzipLevel);
+               }
+            };
+         }
+         w = new OutputStreamWriter(os, charset);
+      } else if (gzip) {
+         throw new IllegalStateException("Gzip output needs an OutputStream, not a Writer");
+      }
+      return new CSVWriter(w, separator, quotechar, escapechar, lineEnd, bufferSize, async);
+   }
+}
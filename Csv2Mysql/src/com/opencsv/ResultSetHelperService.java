@@ -20,8 +20,12 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Locale;
 
 /**
  * helper class for processing JDBC ResultSet objects.
@@ -39,6 +43,9 @@ public class ResultSetHelperService implements ResultSetHelper {
    static final String DEFAULT_DATE_FORMAT = "dd-MMM-yyyy";
    static final String DEFAULT_TIMESTAMP_FORMAT = "dd-MMM-yyyy HH:mm:ss";
 
+   // SimpleDateFormats are made once per pattern, and, as they may not be shared, per thread
+   private final ThreadLocal<Map<String, SimpleDateFormat>> formats = ThreadLocal.withInitial(HashMap::new);
+
    /**
     * Default Constructor.
     */
@@ -46,7 +53,8 @@ public class ResultSetHelperService implements ResultSetHelper {
    }
 
    private static String read(Clob c) throws SQLException, IOException {
-      StringBuilder sb = new StringBuilder((int) c.length());
+      // Not sized by c.length(), which may need a pass over the CLOB, and may not fit an int
+      StringBuilder sb = new StringBuilder();
       Reader r = c.getCharacterStream();
       char[] cbuf = new char[CLOBBUFFERSIZE];
       int n;
@@ -173,8 +181,7 @@ public class ResultSetHelperService implements ResultSetHelper {
       java.sql.Date date = rs.getDate(columnIndex);
       String value = null;
       if (date != null) {
-         SimpleDateFormat dateFormat = new SimpleDateFormat(dateFormatString);
-         value = dateFormat.format(date);
+         value = format(dateFormatString).format(date);
       }
       return value;
    }
@@ -196,8 +203,11 @@ public class ResultSetHelperService implements ResultSetHelper {
     * @return - formatted time stamp.
     */
    protected String handleTimestamp(Timestamp timestamp, String timestampFormatString) {
-      SimpleDateFormat timeFormat = new SimpleDateFormat(timestampFormatString);
-      return timestamp == null ? null : timeFormat.format(timestamp);
+      return timestamp == null ? null : format(timestampFormatString).format(timestamp);
+   }
+
+   private SimpleDateFormat format(String pattern) {
+      return formats.get().computeIfAbsent(pattern, SimpleDateFormat::new);
    }
 
    private String getColumnValue(ResultSet rs, int colType, int colIndex, boolean trim, String dateFormatString, String timestampFormatString)
@@ -269,4 +279,120 @@ public class ResultSetHelperService implements ResultSetHelper {
 
       return value;
    }
+
+   /**
+    * Writes a value of a column of the current row of a ResultSet to a CSVWriter.
+    */
+   interface ColumnWriter {
+      void write(ResultSet rs, CSVWriter csv) throws SQLException, IOException;
+   }
+
+   /**
+    * Writes the rest of the rows of a ResultSet, with the values getColumnValues would give, quoted, but
+    * without making an array or a list for each row.  The types of the columns are read once, and each
+    * column is given its own writer: integers are written without being made into Strings, dates and
+    * timestamps are formatted with DateTimeFormatters, which are made once and may be shared, in the
+    * default formats, and CLOBs are copied straight to the CSVWriter.
+    *
+    * @param rs - the ResultSet.
+    * @param csv - the CSVWriter.
+    * @param trim - values of character columns should have white spaces trimmed.
+    * @throws SQLException - thrown by the ResultSet.
+    * @throws IOException - thrown in reading a CLOB.
+    */
+   void writeRows(ResultSet rs, CSVWriter csv, boolean trim) throws SQLException, IOException {
+      ResultSetMetaData metadata = rs.getMetaData();
+      ColumnWriter[] columns = new ColumnWriter[metadata.getColumnCount()];
+      Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+      DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(DEFAULT_DATE_FORMAT, locale);
+      DateTimeFormatter timestampFormat = DateTimeFormatter.ofPattern(DEFAULT_TIMESTAMP_FORMAT, locale);
+      for (int i = 0; i < columns.length; i++) {
+         columns[i] = columnWriter(metadata.getColumnType(i + 1), i + 1, trim, dateFormat, timestampFormat);
+      }
+      while (rs.next()) {
+         for (ColumnWriter column : columns) {
+            column.write(rs, csv);
+         }
+         csv.endLine();
+      }
+   }
+
+   /**
+    * @return the writer of a column, which writes what getColumnValue would give.
+    */
+   private ColumnWriter columnWriter(int colType, int colIndex, boolean trim, DateTimeFormatter dateFormat,
+                                     DateTimeFormatter timestampFormat) {
+      switch (colType) {
+         case Types.BIT:
+         case Types.JAVA_OBJECT:
+            return (rs, csv) -> csv.writeField(handleObject(rs.getObject(colIndex)), true);
+         case Types.BOOLEAN:
+            return (rs, csv) -> csv.writeField(rs.getBoolean(colIndex) ? "true" : "false", true);
+         case NCLOB:
+         case Types.CLOB:
+            return (rs, csv) -> {
+               Clob c = rs.getClob(colIndex);
+               if (c == null) {
+                  csv.writeField("", true);
+               } else {
+                  try (Reader r = c.getCharacterStream()) {
+                     csv.writeField(r, true);
+                  }
+               }
+            };
+         case Types.BIGINT:
+            return (rs, csv) -> {
+               long lv = rs.getLong(colIndex);
+               if (rs.wasNull()) {
+                  csv.writeField("", true);
+               } else {
+                  csv.writeField(lv, true);
+               }
+            };
+         case Types.INTEGER:
+         case Types.TINYINT:
+         case Types.SMALLINT:
+            return (rs, csv) -> {
+               int i = rs.getInt(colIndex);
+               if (rs.wasNull()) {
+                  csv.writeField("", true);
+               } else {
+                  csv.writeField(i, true);
+               }
+            };
+         case Types.DECIMAL:
+         case Types.DOUBLE:
+         case Types.FLOAT:
+         case Types.REAL:
+         case Types.NUMERIC:
+            return (rs, csv) -> csv.writeField(handleBigDecimal(rs.getBigDecimal(colIndex)), true);
+         case Types.DATE:
+            return (rs, csv) -> {
+               java.sql.Date date = rs.getDate(colIndex);
+               csv.writeField(date == null ? "" : dateFormat.format(date.toLocalDate()), true);
+            };
+         case Types.TIME:
+            return (rs, csv) -> {
+               Time time = rs.getTime(colIndex);
+               csv.writeField(time == null ? "" : time.toString(), true);
+            };
+         case Types.TIMESTAMP:
+            return (rs, csv) -> {
+               Timestamp timestamp = rs.getTimestamp(colIndex);
+               csv.writeField(timestamp == null ? "" : timestampFormat.format(timestamp.toLocalDateTime()), true);
+            };
+         case NVARCHAR:
+         case NCHAR:
+         case LONGNVARCHAR:
+         case Types.LONGVARCHAR:
+         case Types.VARCHAR:
+         case Types.CHAR:
+            return (rs, csv) -> {
+               String columnValue = rs.getString(colIndex);
+               csv.writeField(columnValue == null ? "" : trim ? columnValue.trim() : columnValue, true);
+            };
+         default:
+            return (rs, csv) -> csv.writeField("", true);
+      }
+   }
 }
@@ -0,0 +1,27 @@
+package com.opencsv;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, to read records without making a String and an array for each.
+ */
+
+/**
+ * Receives the fields of the records of a csv file, one at a time, from CSVReader.forEachRecord.
+ *
+ * The value given to field is the parser's own buffer, which is reused for the next field: it is only
+ * valid during the call, and must be copied, e.g., with toString, to be kept.
+ */
+public interface RowVisitor {
+
+   /**
+    * Receives a field of the current record.
+    *
+    * @param index the position of the field in its record, from 0.
+    * @param value the value of the field, valid only during this call.
+    */
+   void field(int index, CharSequence value);
+
+   /**
+    * Ends the current record, after all its fields.
+    */
+   void endRecord();
+}
@@ -0,0 +1,244 @@
+package com.opencsv.bean;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, to map a csv file to beans one line at a time, rather than into
+ * a List that must hold the whole file.
+ */
+
+import com.opencsv.CSVReader;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an Iterator over the beans made from the lines of a CSVReader, whose header has already been
+ * captured by the mapper.  Lines are read only as beans are asked for, and the filter, if any, is applied
+ * to each line as it is read.  Errors are thrown from hasNext and next as the RuntimeException that
+ * CsvToBean.parse would throw.
+ *
+ * @param <T> - class to convert the objects to.
+ */
+abstract class BeanIterator<T> implements Iterator<T>, AutoCloseable {
+   final CsvToBean<T> csvToBean;
+   final MappingStrategy<T> mapper;
+   final CSVReader csv;
+   final CsvToBeanFilter filter;
+
+   BeanIterator(CsvToBean<T> csvToBean, MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
+      this.csvToBean = csvToBean;
+      this.mapper = mapper;
+      this.csv = csv;
+      this.filter = filter;
+   }
+
+   /**
+    * This method is not supported and will throw a UnsupportedOperationException if called.
+    */
+   public void remove() {
+      throw new UnsupportedOperationException("This is a read only iterator.");
+   }
+
+   /**
+    * Stops reading.  The CSVReader is not closed.
+    */
+   public void close() {
+   }
+
+   static RuntimeException failed(Throwable t) {
+      return new RuntimeException("Error parsing CSV!", t);
+   }
+
+   /**
+    * Reads a line and makes its bean in the thread that asks for it.
+    */
+   static final class Sequential<T> extends BeanIterator<T> {
+      private T next;
+      private boolean done;
+
+      Sequential(CsvToBean<T> csvToBean, MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
+         super(csvToBean, mapper, csv, filter);
+      }
+
+      public boolean hasNext() {
+         if (next != null) {
+            return true;
+         }
+         if (done) {
+            return false;
+         }
+         try {
+            String[] line;
+            while (null != (line = csv.readNext())) {
+               if (filter == null || filter.allowLine(line)) {
+                  next = csvToBean.processLine(mapper, line);
+                  return true;
+               }
+            }
+         } catch (Exception e) {
+            done = true;
+            throw failed(e);
+         }
+         done = true;
+         return false;
+      }
+
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         T temp = next;
+         next = null;
+         return temp;
+      }
+
+      @Override
+      public void close() {
+         done = true;
+         next = null;
+      }
+   }
+
+   /**
+    * Reads and filters lines in one thread, and makes their beans in a pool of workers, a batch of lines
+    * at a time.  The beans are returned in the order of their lines.  At most two batches per worker are
+    * read ahead of the beans returned, so that memory does not grow with the file.
+    */
+   static final class Parallel<T> extends BeanIterator<T> {
+      static final int BATCH = 1024;
+      // How often the reading thread, waiting for room in the queue, checks whether it should stop
+      static final long POLL_MILLIS = 100;
+      // Marks the end of the batches
+      private static final Future<?> END = CompletableFuture.completedFuture(null);
+
+      private final ExecutorService pool;
+      private final BlockingQueue<Future<List<T>>> batches;
+      private final Thread reader;
+      private Iterator<T> current;
+      private volatile boolean done;
+
+      Parallel(CsvToBean<T> csvToBean, MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter, int workers) {
+         super(csvToBean, mapper, csv, filter);
+         pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "opencsv-bean-worker");
+            t.setDaemon(true);
+            return t;
+         });
+         batches = new ArrayBlockingQueue<>(2 * workers);
+         reader = new Thread(this::readBatches, "opencsv-bean-reader");
+         reader.setDaemon(true);
+         reader.start();
+      }
+
+      @SuppressWarnings("unchecked")
+      private void readBatches() {
+         try {
+            List<String[]> batch = new ArrayList<>(BATCH);
+            int columns = 0;
+            String[] line;
+            while (!done && null != (line = csv.readNext())) {
+               if (filter == null || filter.allowLine(line)) {
+                  batch.add(line);
+                  columns = Math.max(columns, line.length);
+                  if (batch.size() == BATCH) {
+                     submit(batch, columns);
+                     batch = new ArrayList<>(BATCH);
+                     columns = 0;
+                  }
+               }
+            }
+            if (!batch.isEmpty()) {
+               submit(batch, columns);
+            }
+            enqueue((Future<List<T>>) END);
+         } catch (InterruptedException e) {
+            // closed
+         } catch (Exception e) {
+            CompletableFuture<List<T>> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            try {
+               enqueue(f);
+            } catch (InterruptedException e1) {
+               // closed
+            }
+         }
+      }
+
+      /**
+       * Queues a batch, waiting for room only while the iterator is open, so that close need not interrupt
+       * the reading thread, which could close an interruptible channel under the CSVReader.
+       */
+      private void enqueue(Future<List<T>> f) throws InterruptedException {
+         while (!done && !batches.offer(f, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            // the consumer is behind
+         }
+      }
+
+      /**
+       * Hands a batch to the workers, binding its columns first so that the workers need not.
+       */
+      private void submit(List<String[]> batch, int columns) throws Exception {
+         csvToBean.prepare(mapper, columns);
+         enqueue(pool.submit(() -> {
+            List<T> beans = new ArrayList<>(batch.size());
+            for (String[] line : batch) {
+               beans.add(csvToBean.processLine(mapper, line));
+            }
+            return beans;
+         }));
+      }
+
+      public boolean hasNext() {
+         while (current == null || !current.hasNext()) {
+            if (done) {
+               return false;
+            }
+            try {
+               Future<List<T>> f = batches.take();
+               if (f == END) {
+                  close();
+                  return false;
+               }
+               current = f.get().iterator();
+            } catch (ExecutionException e) {
+               close();
+               throw failed(e.getCause());
+            } catch (InterruptedException e) {
+               close();
+               Thread.currentThread().interrupt();
+               throw failed(e);
+            }
+         }
+         return true;
+      }
+
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         return current.next();
+      }
+
+      /**
+       * Stops the reading thread and the workers.  The reading thread is not interrupted but stops before
+       * its next line, so the CSVReader stays open.
+       */
+      @Override
+      public void close() {
+         done = true;
+         current = null;
+         // Make room, so that a reading thread waiting to queue a batch sees done at once
+         batches.clear();
+         pool.shutdownNow();
+      }
+   }
+}
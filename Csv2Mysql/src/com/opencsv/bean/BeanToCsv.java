@@ -21,14 +21,23 @@ import com.opencsv.CSVWriter;
 import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
 import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Allows to export Java beans content to a new CSV spreadsheet file.
  *
+ * The beans may be given as a List, or as an Iterator or a Stream, which are consumed one bean at a time,
+ * so that any number of beans may be written.  Their getters are called through MethodHandles, and their
+ * values are written straight into the CSVWriter, numbers without being made into Strings.
+ *
  * @author Kali &lt;kali.tystrit@gmail.com&gt;
  * @param <T> - Type of object that is being processed.
  */
@@ -50,7 +59,36 @@ public class BeanToCsv<T> {
      */
     public boolean write(MappingStrategy<T> mapper, Writer writer,
                          List<?> objects) {
-        return write(mapper, new CSVWriter(writer), objects);
+        return write(mapper, writer, objects == null ? null : objects.iterator());
+    }
+
+    /**
+     * Writes all the objects, one at a time, to a created csvWriter using the passed in Strategy.
+     *
+     * @param mapper  - Mapping strategy for the bean.
+     * @param writer  - Writer object used to construct the CSVWriter.
+     * @param objects - iterator of the objects to write.
+     * @return - false if there are no objects to process, true otherwise.
+     */
+    public boolean write(MappingStrategy<T> mapper, Writer writer, Iterator<?> objects) {
+        CSVWriter csv = new CSVWriter(writer);
+        try {
+            return write(mapper, csv, objects);
+        } finally {
+            csv.flushQuietly();
+        }
+    }
+
+    /**
+     * Writes all the objects, one at a time, to a created csvWriter using the passed in Strategy.
+     *
+     * @param mapper  - Mapping strategy for the bean.
+     * @param writer  - Writer object used to construct the CSVWriter.
+     * @param objects - stream of the objects to write.
+     * @return - false if there are no objects to process, true otherwise.
+     */
+    public boolean write(MappingStrategy<T> mapper, Writer writer, Stream<?> objects) {
+        return write(mapper, writer, objects == null ? null : objects.iterator());
     }
 
     /**
@@ -61,14 +99,49 @@ public class BeanToCsv<T> {
      * @return - false if there are no objects to process, true otherwise.
      */
     public boolean write(MappingStrategy<T> mapper, CSVWriter csv, List<?> objects) {
-        if (objects == null || objects.isEmpty()) {
+        return write(mapper, csv, objects == null ? null : objects.iterator());
+    }
+
+    /**
+     * Writes all the objects, one at a time, to the csvWriter using the passed in Strategy.
+     * @param mapper - Mapping strategy for the bean.
+     * @param csv - CSVWriter
+     * @param objects - stream of the objects to write.
+     * @return - false if there are no objects to process, true otherwise.
+     */
+    public boolean write(MappingStrategy<T> mapper, CSVWriter csv, Stream<?> objects) {
+        return write(mapper, csv, objects == null ? null : objects.iterator());
+    }
+
+    /**
+     * Writes all the objects, one at a time, to the csvWriter using the passed in Strategy.
+     * @param mapper - Mapping strategy for the bean.
+     * @param csv - CSVWriter
+     * @param objects - iterator of the objects to write.
+     * @return - false if there are no objects to process, true otherwise.
+     */
+    public boolean write(MappingStrategy<T> mapper, CSVWriter csv, Iterator<?> objects) {
+        if (objects == null || !objects.hasNext()) {
             return false;
         }
 
         try {
             csv.writeNext(processHeader(mapper));
-            List<Method> getters = findGetters(mapper);
-            processAndWriteObjects(csv, objects, getters);
+            if (overridesProcessObject()) {
+                List<Method> getters = findGetters(mapper);
+                while (objects.hasNext()) {
+                    csv.writeNext(processObject(getters, objects.next()));
+                }
+            } else {
+                List<ColumnGetter> getters = compileGetters(mapper);
+                while (objects.hasNext()) {
+                    Object obj = objects.next();
+                    for (ColumnGetter getter : getters) {
+                        getter.write(csv, obj);
+                    }
+                    csv.endLine();
+                }
+            }
             return true;
         } catch (Exception e) {
             throw new RuntimeException("Error writing CSV !", e);
@@ -76,19 +149,17 @@ public class BeanToCsv<T> {
     }
 
     /**
-     * Processes a list of objects.
-     * @param csv - csvWriter
-     * @param objects - list of objects to process
-     * @param getters - list of getter methods to retrieve the data from the objects.
-     * @throws IntrospectionException -  thrown if there is an failure in Introspection.
-     * @throws IllegalAccessException -  thrown if there is an failure in Introspection.
-     * @throws InvocationTargetException -  thrown if there is an failure in Introspection.
+     * @return true if a subclass makes the values of a line itself, by overriding processObject.
      */
-    private void processAndWriteObjects(CSVWriter csv, List<?> objects, List<Method> getters) throws IntrospectionException, IllegalAccessException, InvocationTargetException {
-        for (Object obj : objects) {
-            String[] line = processObject(getters, obj);
-            csv.writeNext(line);
+    private boolean overridesProcessObject() {
+        for (Class<?> cls = getClass(); cls != BeanToCsv.class; cls = cls.getSuperclass()) {
+            for (Method m : cls.getDeclaredMethods()) {
+                if (m.getName().equals("processObject")) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     /**
@@ -152,4 +223,137 @@ public class BeanToCsv<T> {
         }
         return readers;
     }
+
+    /**
+     * Build the compiled getters of the columns from provided mapper.
+     * @param mapper MappingStrategy for Bean
+     * @return - list of getters for writing the data in the bean.
+     * @throws IntrospectionException - thrown if there is an failure in Introspection.
+     * @throws IllegalAccessException - thrown if a getter cannot be accessed.
+     */
+    private List<ColumnGetter> compileGetters(MappingStrategy<T> mapper)
+            throws IntrospectionException, IllegalAccessException {
+        List<ColumnGetter> getters = new ArrayList<>();
+        for (Method getter : findGetters(mapper)) {
+            getters.add(ColumnGetter.of(getter));
+        }
+        return getters;
+    }
+
+    /**
+     * Gets a value from a bean and writes it as a field, as processObject would write it.  Integers are
+     * written without being boxed or made into Strings.
+     */
+    private abstract static class ColumnGetter {
+        final MethodHandle getter;
+
+        ColumnGetter(MethodHandle getter) {
+            this.getter = getter;
+        }
+
+        abstract void write(CSVWriter csv, Object bean) throws InvocationTargetException;
+
+        static ColumnGetter of(Method getter) throws IllegalAccessException {
+            MethodHandle h = MethodHandles.lookup().unreflect(getter);
+            Class<?> cls = getter.getReturnType();
+            if (cls == int.class || cls == long.class || cls == short.class || cls == byte.class) {
+                return new IntegerGetter(h.asType(MethodType.methodType(long.class, Object.class)));
+            }
+            if (cls == double.class) {
+                return new DoubleGetter(h.asType(MethodType.methodType(double.class, Object.class)));
+            }
+            if (cls == float.class) {
+                return new FloatGetter(h.asType(MethodType.methodType(float.class, Object.class)));
+            }
+            if (cls == boolean.class) {
+                return new BooleanGetter(h.asType(MethodType.methodType(boolean.class, Object.class)));
+            }
+            return new ObjectGetter(h.asType(MethodType.methodType(Object.class, Object.class)));
+        }
+    }
+
+    private static final class IntegerGetter extends ColumnGetter {
+        IntegerGetter(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void write(CSVWriter csv, Object bean) throws InvocationTargetException {
+            long value;
+            try {
+                value = (long) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+            csv.writeField(value, true);
+        }
+    }
+
+    private static final class DoubleGetter extends ColumnGetter {
+        DoubleGetter(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void write(CSVWriter csv, Object bean) throws InvocationTargetException {
+            double value;
+            try {
+                value = (double) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+            csv.writeField(Double.toString(value), true);
+        }
+    }
+
+    private static final class FloatGetter extends ColumnGetter {
+        FloatGetter(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void write(CSVWriter csv, Object bean) throws InvocationTargetException {
+            float value;
+            try {
+                value = (float) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+            csv.writeField(Float.toString(value), true);
+        }
+    }
+
+    private static final class BooleanGetter extends ColumnGetter {
+        BooleanGetter(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void write(CSVWriter csv, Object bean) throws InvocationTargetException {
+            boolean value;
+            try {
+                value = (boolean) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+            csv.writeField(value ? "true" : "false", true);
+        }
+    }
+
+    private static final class ObjectGetter extends ColumnGetter {
+        ObjectGetter(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void write(CSVWriter csv, Object bean) throws InvocationTargetException {
+            Object value;
+            try {
+                value = (Object) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+            csv.writeField(value == null ? "null" : value.toString(), true);
+        }
+    }
 }
@@ -0,0 +1,342 @@
+package com.opencsv.bean;
+
+/*
+ * Added to opencsv-3.3 for csv2mysql, to bind the columns of a line to the properties of a bean without
+ * looking up a PropertyDescriptor and calling Method.invoke for every value.
+ */
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+
+/**
+ * The binding of the columns of a csv file to the setters of a bean, made once per header from a
+ * MappingStrategy.  Each mapped column has a setter compiled to a MethodHandle, and a converter for the
+ * setter's type, so that a column of int, long, double, float or boolean is parsed and set
+ * without boxing.  Values are converted as the JDK's default PropertyEditors convert them, e.g., integers
+ * are decoded so that 0x10 is 16; other types are converted by CsvToBean.convertValue.
+ *
+ * @param <T> - class to convert the objects to.
+ */
+final class CompiledMapping<T> {
+   private final MappingStrategy<T> mapper;
+   private final ColumnSetter[] setters;
+
+   private CompiledMapping(MappingStrategy<T> mapper, ColumnSetter[] setters) {
+      this.mapper = mapper;
+      this.setters = setters;
+   }
+
+   /**
+    * Compiles the binding of the columns of a mapper.
+    *
+    * @param csvToBean - the CsvToBean whose convertValue converts types that are not compiled.
+    * @param mapper - MappingStrategy, whose header has been captured.
+    * @param columns - the number of columns to bind.
+    * @param previous - a binding of fewer columns by the same mapper, whose setters are reused, or null.
+    * @return the binding.
+    * @throws IntrospectionException - thrown on error getting the PropertyDescriptors.
+    * @throws IllegalAccessException - thrown if a setter cannot be accessed.
+    */
+   static <T> CompiledMapping<T> compile(CsvToBean<T> csvToBean, MappingStrategy<T> mapper, int columns,
+                                         CompiledMapping<T> previous) throws IntrospectionException, IllegalAccessException {
+      ColumnSetter[] setters = new ColumnSetter[columns];
+      int from = 0;
+      if (previous != null && previous.mapper == mapper) {
+         from = Math.min(columns, previous.setters.length);
+         System.arraycopy(previous.setters, 0, setters, 0, from);
+      }
+      boolean custom = csvToBean.convertsValues();
+      for (int col = from; col < columns; col++) {
+         PropertyDescriptor prop = mapper.findDescriptor(col);
+         if (null != prop) {
+            setters[col] = ColumnSetter.of(csvToBean, prop, custom);
+         }
+      }
+      return new CompiledMapping<>(mapper, setters);
+   }
+
+   /**
+    * @param mapper - MappingStrategy.
+    * @param columns - the number of columns of a line.
+    * @return true if this binding was made by the mapper and covers that many columns.
+    */
+   boolean covers(MappingStrategy<T> mapper, int columns) {
+      return this.mapper == mapper && setters.length >= columns;
+   }
+
+   /**
+    * Creates a bean from a line.
+    *
+    * @param line - array of Strings from the csv file.
+    * @return the bean.
+    * @throws IllegalAccessException - thrown on error creating bean.
+    * @throws InvocationTargetException - thrown on error calling the setters.
+    * @throws InstantiationException - thrown on error creating bean or converting a value.
+    */
+   T toBean(String[] line) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+      T bean = mapper.createBean();
+      for (int col = 0; col < line.length; col++) {
+         ColumnSetter setter = setters[col];
+         if (null != setter) {
+            setter.set(bean, setter.trim ? line[col].trim() : line[col]);
+         }
+      }
+      return bean;
+   }
+
+   /**
+    * Converts a value and sets it in a bean.
+    */
+   abstract static class ColumnSetter {
+      final boolean trim;
+      final MethodHandle setter;
+
+      ColumnSetter(boolean trim, MethodHandle setter) {
+         this.trim = trim;
+         this.setter = setter;
+      }
+
+      abstract void set(Object bean, String value) throws IllegalAccessException, InvocationTargetException, InstantiationException;
+
+      /**
+       * Makes the setter for a property.
+       *
+       * @param csvToBean - the CsvToBean whose convertValue converts types that are not compiled.
+       * @param prop - the property.
+       * @param custom - true if every value is to be converted by convertValue.
+       * @return the setter.
+       * @throws IllegalAccessException - thrown if the setter cannot be accessed.
+       */
+      static ColumnSetter of(CsvToBean<?> csvToBean, PropertyDescriptor prop, boolean custom) throws IllegalAccessException {
+         Method write = prop.getWriteMethod();
+         if (write == null) {
+            // Only an error if the column holds a value
+            return new ColumnSetter(false, null) {
+               @Override
+               void set(Object bean, String value) throws IllegalAccessException {
+                  throw new IllegalAccessException("No setter for property " + prop.getName());
+               }
+            };
+         }
+         Class<?> cls = prop.getPropertyType();
+         boolean trim = !cls.getName().contains("String");
+         MethodHandle h = MethodHandles.lookup().unreflect(write);
+         if (!custom && null == prop.getPropertyEditorClass()) {
+            if (cls == int.class) {
+               return new IntSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, int.class)));
+            }
+            if (cls == long.class) {
+               return new LongSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, long.class)));
+            }
+            if (cls == double.class) {
+               return new DoubleSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, double.class)));
+            }
+            if (cls == float.class) {
+               return new FloatSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, float.class)));
+            }
+            if (cls == boolean.class) {
+               return new BooleanSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+            }
+         }
+         return new ObjectSetter(trim, h.asType(MethodType.methodType(void.class, Object.class, Object.class)),
+               csvToBean, prop, custom);
+      }
+
+      static InvocationTargetException failed(Throwable t) {
+         return new InvocationTargetException(t);
+      }
+   }
+
+   static final class IntSetter extends ColumnSetter {
+      IntSetter(boolean trim, MethodHandle setter) {
+         super(trim, setter);
+      }
+
+      @Override
+      void set(Object bean, String value) throws InvocationTargetException {
+         int v = parseInt(value);
+         try {
+            setter.invokeExact(bean, v);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+   }
+
+   static final class LongSetter extends ColumnSetter {
+      LongSetter(boolean trim, MethodHandle setter) {
+         super(trim, setter);
+      }
+
+      @Override
+      void set(Object bean, String value) throws InvocationTargetException {
+         long v = parseLong(value);
+         try {
+            setter.invokeExact(bean, v);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+   }
+
+   static final class DoubleSetter extends ColumnSetter {
+      DoubleSetter(boolean trim, MethodHandle setter) {
+         super(trim, setter);
+      }
+
+      @Override
+      void set(Object bean, String value) throws InvocationTargetException {
+         double v = Double.parseDouble(value);
+         try {
+            setter.invokeExact(bean, v);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+   }
+
+   static final class FloatSetter extends ColumnSetter {
+      FloatSetter(boolean trim, MethodHandle setter) {
+         super(trim, setter);
+      }
+
+      @Override
+      void set(Object bean, String value) throws InvocationTargetException {
+         float v = Float.parseFloat(value);
+         try {
+            setter.invokeExact(bean, v);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+   }
+
+   static final class BooleanSetter extends ColumnSetter {
+      BooleanSetter(boolean trim, MethodHandle setter) {
+         super(trim, setter);
+      }
+
+      @Override
+      void set(Object bean, String value) throws InvocationTargetException {
+         boolean v = parseBoolean(value);
+         try {
+            setter.invokeExact(bean, v);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+   }
+
+   /**
+    * Sets a property of any other type, or of any type if convertValue has been overridden.  Wrappers,
+    * Strings and LocalDates are converted here; anything else by convertValue.
+    */
+   static final class ObjectSetter extends ColumnSetter {
+      private final CsvToBean<?> csvToBean;
+      private final PropertyDescriptor prop;
+      private final Class<?> type;
+      private final boolean custom;
+
+      ObjectSetter(boolean trim, MethodHandle setter, CsvToBean<?> csvToBean, PropertyDescriptor prop, boolean custom) {
+         super(trim, setter);
+         this.csvToBean = csvToBean;
+         this.prop = prop;
+         this.type = MethodType.methodType(prop.getPropertyType()).wrap().returnType();
+         this.custom = custom;
+      }
+
+      @Override
+      void set(Object bean, String value) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+         Object obj = custom ? csvToBean.convertValue(value, prop) : convert(value);
+         // As Method.invoke would, refuse a value of the wrong type rather than fail in the setter
+         if (obj == null ? prop.getPropertyType().isPrimitive() : !type.isInstance(obj)) {
+            throw new IllegalArgumentException("argument type mismatch");
+         }
+         try {
+            setter.invokeExact(bean, obj);
+         } catch (Throwable t) {
+            throw failed(t);
+         }
+      }
+
+      private Object convert(String value) throws IllegalAccessException, InstantiationException {
+         if (type == String.class || type == Object.class) {
+            return value;
+         }
+         if (type == Integer.class) {
+            return parseInt(value);
+         }
+         if (type == Long.class) {
+            return parseLong(value);
+         }
+         if (type == Double.class) {
+            return Double.valueOf(value);
+         }
+         if (type == Float.class) {
+            return Float.valueOf(value);
+         }
+         if (type == Boolean.class) {
+            return parseBoolean(value);
+         }
+         if (type == LocalDate.class) {
+            return LocalDate.parse(value);
+         }
+         return csvToBean.convertValue(value, prop);
+      }
+   }
+
+   /**
+    * Parses an int as Integer.decode does, but without boxing it unless it is hexadecimal or octal.
+    *
+    * @param s - the value.
+    * @return the int.
+    */
+   static int parseInt(String s) {
+      return isDecimal(s) ? Integer.parseInt(s) : Integer.decode(s);
+   }
+
+   /**
+    * Parses a long as Long.decode does, but without boxing it unless it is hexadecimal or octal.
+    *
+    * @param s - the value.
+    * @return the long.
+    */
+   static long parseLong(String s) {
+      return isDecimal(s) ? Long.parseLong(s) : Long.decode(s);
+   }
+
+   /**
+    * @param s - the value.
+    * @return false if decode would read the value as hexadecimal or octal, or it is empty.
+    */
+   private static boolean isDecimal(String s) {
+      if (s.isEmpty()) {
+         return false;
+      }
+      int i = (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+      return i >= s.length() || !(s.charAt(i) == '#' || (s.charAt(i) == '0' && s.length() > i + 1));
+   }
+
+   /**
+    * Parses a boolean as the JDK's default editor does, which, unlike Boolean.parseBoolean, refuses
+    * anything but true or false.
+    *
+    * @param s - the value.
+    * @return the boolean.
+    */
+   static boolean parseBoolean(String s) {
+      if (s.equalsIgnoreCase("true")) {
+         return true;
+      }
+      if (s.equalsIgnoreCase("false")) {
+         return false;
+      }
+      throw new IllegalArgumentException(s);
+   }
+}
@@ -24,18 +24,32 @@ import java.beans.PropertyEditor;
 import java.beans.PropertyEditorManager;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Converts CSV data to objects.
  *
+ * The objects may be had all at once, as a List, or one at a time, from an Iterator or a Stream that reads
+ * the lines only as the objects are asked for.  With setWorkers, the objects are made by a pool of threads
+ * while another reads the lines.
+ *
  * @param <T> - class to convert the objects to.
  */
 public class CsvToBean<T> {
-   private Map<Class<?>, PropertyEditor> editorMap = null;
+   // PropertyEditors hold the value they convert, so each thread has its own
+   private final ThreadLocal<Map<Class<?>, PropertyEditor>> editorMap = ThreadLocal.withInitial(HashMap::new);
+   private volatile CompiledMapping<T> compiled = null;
+   private int workers = 0;
 
    /**
     * Default constructor.
@@ -43,6 +57,27 @@ public class CsvToBean<T> {
    public CsvToBean() {
    }
 
+   /**
+    * Sets the number of threads that make objects from lines, while one more thread reads and filters the
+    * lines, a batch at a time.  The objects are still returned in the order of their lines.  The default,
+    * 0, makes the objects in the thread that asks for them.
+    *
+    * With workers, a subclass that overrides processLine, convertValue or getPropertyEditor must allow them
+    * to be called from several threads at once; the filter is called only by the thread that reads.
+    *
+    * @param workers - the number of threads, or 0 for none.
+    */
+   public void setWorkers(int workers) {
+      this.workers = Math.max(0, workers);
+   }
+
+   /**
+    * @return the number of threads that make objects from lines, or 0 if they are made by the caller.
+    */
+   public int getWorkers() {
+      return workers;
+   }
+
    /**
     * parse the values from a csvReader constructed from the passed in Reader.
     * @param mapper - mapping strategy for the bean.
@@ -83,28 +118,75 @@ public class CsvToBean<T> {
     * @return List of Objects.
     */
    public List<T> parse(MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
+      List<T> list = new ArrayList<>();
+      try (BeanIterator<T> it = beans(mapper, csv, filter)) {
+         while (it.hasNext()) {
+            list.add(it.next());
+         }
+      }
+      return list;
+   }
+
+   /**
+    * Returns an Iterator over the objects made from the lines of the csvReader, which are read only as the
+    * objects are asked for, so that a file of any length may be mapped.  The header is read at once.
+    * Errors are thrown by hasNext and next as the RuntimeException that parse would throw.
+    * @param mapper - mapping strategy for the bean.
+    * @param csv - CSVReader
+    * @param filter - CsvToBeanFilter to apply to each line as it is read - null if no filter.
+    * @return Iterator of Objects.
+    */
+   public Iterator<T> iterator(MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
+      return beans(mapper, csv, filter);
+   }
+
+   private BeanIterator<T> beans(MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
       try {
+         compiled = null;
          mapper.captureHeader(csv);
-         String[] line;
-         List<T> list = new ArrayList<>();
-         while (null != (line = csv.readNext())) {
-            processLine(mapper, filter, line, list);
-         }
-         return list;
       } catch (Exception e) {
          throw new RuntimeException("Error parsing CSV!", e);
       }
+      if (workers > 0) {
+         return new BeanIterator.Parallel<>(this, mapper, csv, filter, workers);
+      }
+      return new BeanIterator.Sequential<>(this, mapper, csv, filter);
    }
 
-   private void processLine(MappingStrategy<T> mapper, CsvToBeanFilter filter, String[] line, List<T> list) throws IllegalAccessException, InvocationTargetException, InstantiationException, IntrospectionException {
-      if (filter == null || filter.allowLine(line)) {
-         T obj = processLine(mapper, line);
-         list.add(obj);
-      }
+   /**
+    * Returns a sequential, ordered Stream of the objects made from the lines of a csvReader constructed
+    * from the passed in Reader.
+    * @param mapper - mapping strategy for the bean.
+    * @param reader - Reader used to construct a CSVReader
+    * @return Stream of Objects.
+    * @see #stream(MappingStrategy, CSVReader, CsvToBeanFilter)
+    */
+   public Stream<T> stream(MappingStrategy<T> mapper, Reader reader) {
+      return stream(mapper, new CSVReader(reader), null);
+   }
+
+   /**
+    * Returns a sequential, ordered Stream of the objects made from the lines of the csvReader, which are
+    * read only as the Stream is consumed.  With workers, the Stream should be closed if it is not consumed
+    * to its end, to stop their threads; closing it does not close the csvReader.
+    * @param mapper - mapping strategy for the bean.
+    * @param csv - CSVReader
+    * @param filter - CsvToBeanFilter to apply to each line as it is read - null if no filter.
+    * @return Stream of Objects.
+    */
+   public Stream<T> stream(MappingStrategy<T> mapper, CSVReader csv, CsvToBeanFilter filter) {
+      BeanIterator<T> it = beans(mapper, csv, filter);
+      return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(it::close);
    }
 
    /**
     * Creates a single object from a line from the csv file.
+    *
+    * The columns are bound to the bean's setters once, at the first line of a parse, and the binding is
+    * reused for the following lines with the same mapper; a custom MappingStrategy must therefore give the
+    * same PropertyDescriptor for a column throughout a parse.
+    *
     * @param mapper - MappingStrategy
     * @param line  - array of Strings from the csv file.
     * @return - object containing the values.
@@ -114,29 +196,52 @@ public class CsvToBean<T> {
     * @throws IntrospectionException - thrown on error getting the PropertyDescriptor.
     */
    protected T processLine(MappingStrategy<T> mapper, String[] line) throws IllegalAccessException, InvocationTargetException, InstantiationException, IntrospectionException {
-      T bean = mapper.createBean();
-      for (int col = 0; col < line.length; col++) {
-         PropertyDescriptor prop = mapper.findDescriptor(col);
-         if (null != prop) {
-            String value = checkForTrim(line[col], prop);
-            Object obj = convertValue(value, prop);
-            prop.getWriteMethod().invoke(bean, obj);
-         }
-      }
-      return bean;
+      return prepare(mapper, line.length).toBean(line);
    }
 
-   private String checkForTrim(String s, PropertyDescriptor prop) {
-      return trimmableProperty(prop) ? s.trim() : s;
+   /**
+    * Binds the columns of a mapper, unless they are already bound.  With workers, this is called by the
+    * thread that reads, for each batch, so that the workers only read the binding.
+    *
+    * @param mapper - MappingStrategy
+    * @param columns - the number of columns to bind.
+    * @return the binding.
+    * @throws IllegalAccessException - thrown if a setter cannot be accessed.
+    * @throws IntrospectionException - thrown on error getting the PropertyDescriptor.
+    */
+   CompiledMapping<T> prepare(MappingStrategy<T> mapper, int columns) throws IllegalAccessException, IntrospectionException {
+      CompiledMapping<T> c = compiled;
+      if (c == null || !c.covers(mapper, columns)) {
+         c = CompiledMapping.compile(this, mapper, columns, c);
+         compiled = c;
+      }
+      return c;
    }
 
-   private boolean trimmableProperty(PropertyDescriptor prop) {
-      return !prop.getPropertyType().getName().contains("String");
+   /**
+    * @return true if a subclass converts values itself, by overriding convertValue or getPropertyEditor,
+    * in which case every value goes through convertValue.
+    */
+   boolean convertsValues() {
+      for (Class<?> cls = getClass(); cls != CsvToBean.class; cls = cls.getSuperclass()) {
+         for (Method m : cls.getDeclaredMethods()) {
+            if (m.getName().equals("convertValue") || m.getName().equals("getPropertyEditor")) {
+               return true;
+            }
+         }
+      }
+      return false;
    }
 
    /**
     * Convert a string value to its Object value.
     *
+    * Strings, primitives and their wrappers are converted directly, as the JDK's default property editors
+    * would convert them, and LocalDates are parsed in ISO format, e.g., 2015-12-05; other types, and
+    * properties with their own editor class, go through a PropertyEditor.
+    * The default editors are found by reflection from PropertyEditorManager, which is slow the first time and
+    * is not available in a native image unless they are registered.
+    *
     * @param value - String value
     * @param prop  - PropertyDescriptor
     * @return The object set to value (i.e. Integer).  Will return String if no PropertyEditor is found.
@@ -144,6 +249,18 @@ public class CsvToBean<T> {
     * @throws IllegalAccessException - Thrown on error getting the property editor from the property descriptor.
     */
    protected Object convertValue(String value, PropertyDescriptor prop) throws InstantiationException, IllegalAccessException {
+      if (null == prop.getPropertyEditorClass()) {
+         Class<?> cls = prop.getPropertyType();
+         if (cls == String.class || cls == Object.class) {
+            return value;
+         }
+         if (cls.isPrimitive() || Number.class.isAssignableFrom(cls) || cls == Boolean.class || cls == LocalDate.class) {
+            Object obj = convertStandard(value, cls);
+            if (obj != NO_CONVERSION) {
+               return obj;
+            }
+         }
+      }
       PropertyEditor editor = getPropertyEditor(prop);
       Object obj = value;
       if (null != editor) {
@@ -153,24 +270,60 @@ public class CsvToBean<T> {
       return obj;
    }
 
-   private PropertyEditor getPropertyEditorValue(Class<?> cls) {
-      if (editorMap == null) {
-         editorMap = new HashMap<>();
+   private static final Object NO_CONVERSION = new Object();
+
+   /**
+    * Converts a value to a primitive type or its wrapper the way the JDK's default editors for those
+    * types do, e.g., integers are decoded so that 0x10 is 16.
+    *
+    * @param value - String value
+    * @param cls - the type of the property
+    * @return the converted value, or NO_CONVERSION if the type is not one of those
+    */
+   private static Object convertStandard(String value, Class<?> cls) {
+      if (cls == int.class || cls == Integer.class) {
+         return (value == null) ? null : Integer.decode(value);
+      }
+      if (cls == long.class || cls == Long.class) {
+         return (value == null) ? null : Long.decode(value);
+      }
+      if (cls == double.class || cls == Double.class) {
+         return (value == null) ? null : Double.valueOf(value);
       }
+      if (cls == float.class || cls == Float.class) {
+         return (value == null) ? null : Float.valueOf(value);
+      }
+      if (cls == short.class || cls == Short.class) {
+         return (value == null) ? null : Short.decode(value);
+      }
+      if (cls == byte.class || cls == Byte.class) {
+         return (value == null) ? null : Byte.decode(value);
+      }
+      if (cls == boolean.class || cls == Boolean.class) {
+         return (value == null) ? null : CompiledMapping.parseBoolean(value);
+      }
+      if (cls == LocalDate.class) {
+         return (value == null) ? null : LocalDate.parse(value);
+      }
+      return NO_CONVERSION;
+   }
+
+   private PropertyEditor getPropertyEditorValue(Class<?> cls) {
+      Map<Class<?>, PropertyEditor> editors = editorMap.get();
 
-      PropertyEditor editor = editorMap.get(cls);
+      PropertyEditor editor = editors.get(cls);
 
       if (editor == null) {
          editor = PropertyEditorManager.findEditor(cls);
-         addEditorToMap(cls, editor);
+         addEditorToMap(editors, cls, editor);
       }
 
       return editor;
    }
 
-   private void addEditorToMap(Class<?> cls, PropertyEditor editor) {
+   private void addEditorToMap(Map<Class<?>, PropertyEditor> editors, Class<?> cls, PropertyEditor editor) {
       if (editor != null) {
-         editorMap.put(cls, editor);
+         editors.put(cls, editor);
       }
    }
 
@@ -1,7 +1,5 @@
 package com.opencsv.stream.reader;
 
-import com.opencsv.CSVParser;
-
 import java.io.BufferedReader;
 import java.io.IOException;
 
@@ -10,12 +8,23 @@ import java.io.IOException;
  * carriage returns were being removed.  This class allows the user to determine if they wish to keep or
  * remove them from the data being read.
  * <p/>
+ * To keep them, lines are split at newlines by this class, from a window of WINDOW_SIZE characters that is
+ * refilled from the reader a block at a time.
+ * <p/>
  * Created by scott on 2/19/15.
  */
 
 public class LineReader {
+    /**
+     * The number of characters read at a time when carriage returns are kept.
+     */
+    public static final int WINDOW_SIZE = 1 << 16;
     private BufferedReader reader;
     private boolean keepCarriageReturns;
+    // When carriage returns are kept, the characters read but not yet returned are window[pos..end)
+    private char[] window;
+    private int pos;
+    private int end;
 
     /**
      * LineReader constructor.
@@ -38,12 +47,72 @@ public class LineReader {
         return keepCarriageReturns ? readUntilNewline() : reader.readLine();
     }
 
+    /**
+     * Checks whether anything more can be read, by peeking at the reader if nothing is left in the window.
+     *
+     * @return true if the data are exhausted.
+     * @throws IOException - on error from BufferedReader
+     */
+    public boolean isAtEnd() throws IOException {
+        if (pos < end) {
+            return false;
+        }
+        // After a line ended by a carriage return, read() first skips the newline that follows, so the
+        // mark must survive two characters, or reset fails if they straddle a refill of the reader's buffer
+        reader.mark(2);
+        int nextChar = reader.read();
+        reader.reset();
+        return nextChar == -1;
+    }
+
+    /**
+     * Reads up to the next newline, which is dropped, keeping carriage returns.  An empty line is returned
+     * as an empty String; null means the end of the data.
+     *
+     * @return - Line read from reader, or null.
+     * @throws IOException - on error from BufferedReader
+     */
     private String readUntilNewline() throws IOException {
-        StringBuilder sb = new StringBuilder(CSVParser.INITIAL_READ_SIZE);
-        for (int c = reader.read(); c > -1 && c != '\n'; c = reader.read()) {
-            sb.append((char) c);
+        if (window == null) {
+            window = new char[WINDOW_SIZE];
         }
+        // Only a line longer than what is left of the window is assembled in a StringBuilder
+        StringBuilder sb = null;
+        while (true) {
+            if (pos == end && !fill()) {
+                return sb == null ? null : sb.toString();
+            }
+            char[] w = window;
+            int i = pos;
+            int e = end;
+            while (i < e && w[i] != '\n') {
+                i++;
+            }
+            if (i < e) {
+                String line = (sb == null) ? new String(w, pos, i - pos) : sb.append(w, pos, i - pos).toString();
+                pos = i + 1;
+                return line;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(2 * (e - pos) + 16);
+            }
+            sb.append(w, pos, e - pos);
+            pos = e;
+        }
+    }
 
-        return sb.length() > 0 ? sb.toString() : null;
+    /**
+     * Refills the window from the reader.
+     *
+     * @return false at the end of the data.
+     */
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(window, 0, window.length);
+        } while (n == 0);
+        pos = 0;
+        end = Math.max(n, 0);
+        return n > 0;
     }
 }
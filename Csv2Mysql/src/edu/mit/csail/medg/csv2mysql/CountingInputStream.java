@@ -0,0 +1,54 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** An InputStream that counts the bytes read through it, e.g., the bytes of a file as read from disk,
+ * before any decompression or character decoding.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class CountingInputStream extends FilterInputStream {
+	long count = 0;
+
+	/** Creates a CountingInputStream
+	 * @param in the stream to read from
+	 */
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	/** @return the number of bytes read or skipped so far */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) count++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) count += n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long k = super.skip(n);
+		count += k;
+		return k;
+	}
+
+	// Counting cannot be undone on reset, so marking is not supported
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
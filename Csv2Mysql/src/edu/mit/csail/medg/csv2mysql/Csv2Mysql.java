@@ -1,19 +1,38 @@
 package edu.mit.csail.medg.csv2mysql;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.FileInputStream;
-import java.io.FileReader;
+import java.io.InputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.management.JMException;
+
 import com.opencsv.CSVParser;
 import com.opencsv.CSVReader;
 
@@ -46,7 +65,8 @@ import com.opencsv.CSVReader;
         </tr>
         <tr>
           <td valign="top" width="20"><tt>-o</tt></td>
-          <td valign="top">Next argument is the output file [default <tt>mysql_load.sql</tt>]<br>
+          <td valign="top">Next argument is the output file [default <tt>mysql_load.sql</tt>]; if its name
+            ends in <tt>.gz</tt>, the output is gzip'd<br>
           </td>
         </tr>
         <tr>
@@ -99,13 +119,114 @@ import com.opencsv.CSVReader;
           <td valign="top" width="20"><tt>-p</tt></td>
           <td valign="top">Report progress during scan of the
             data.&nbsp; If multiple input files are specified, the
-            program reports processing of each one, and prints a "." for
-            every 100,000 lines of the input file that are read.&nbsp;
+            program reports processing of each one.&nbsp; Every 10 seconds, it
+            reports how far it has read into the file and into all the files,
+            by bytes, the throughput, and an estimate of the time left.&nbsp;
             If <tt>-k</tt> is also given, it reports each time it has
             determined that a certain column of data is <i>not</i>
             unique.<br>
           </td>
         </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--inserts</tt></td>
+          <td valign="top">Instead of <tt>LOAD DATA</tt> statements, write the data itself as
+            extended <tt>INSERT</tt> statements, for servers that do not permit <tt>local_infile</tt><br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--max-statement</tt></td>
+          <td valign="top">Next argument is the maximum size in bytes of an <tt>INSERT</tt> statement;
+            keep it below the server's <tt>max_allowed_packet</tt> [default 4194304]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--threads</tt></td>
+          <td valign="top">Next argument is the number of threads that format <tt>INSERT</tt> statements
+            [default: number of processors]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--histograms</tt></td>
+          <td valign="top">Also write <tt>ANALYZE TABLE ... UPDATE HISTOGRAM ... USING DATA</tt>
+            statements (MySQL 8.0.31 or later) built from statistics gathered during the scan, and a
+            <tt><i>table</i>.stats.json</tt> file for each table next to the output file<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--buckets</tt></td>
+          <td valign="top">Next argument is the number of histogram buckets [default 100, maximum 1024]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--enum</tt></td>
+          <td valign="top">Next argument is the maximum number of distinct values of a text column that is
+            declared as <tt>ENUM</tt> [default 0, i.e., no ENUMs]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--enum-bytes</tt></td>
+          <td valign="top">Next argument is the maximum total length in bytes of the distinct values of an
+            <tt>ENUM</tt> column [default 4096]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--metrics</tt></td>
+          <td valign="top">Next argument is a file to which to write, as JSON, where the time went for each
+            file and each column<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--jmx</tt></td>
+          <td valign="top">Publish the progress of the scan as the JMX MXBean
+            <tt>edu.mit.csail.medg.csv2mysql:type=ScanMonitor</tt><br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--progress-every</tt></td>
+          <td valign="top">Next argument is the number of seconds between progress reports of <tt>-p</tt>
+            [default 10]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--jobs</tt></td>
+          <td valign="top">Next argument is the number of files to scan at the same time, largest first; the
+            output is still written in the order of the files on the command line [default 1]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--key-budget</tt></td>
+          <td valign="top">Next argument is the total number of distinct values that <tt>-k</tt> may hold at a
+            time, over all columns and files; a column that would exceed it is no longer considered as a
+            <tt>UNIQUE KEY</tt> [default unlimited with one job, otherwise about the maximum heap size / 400]<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--table</tt></td>
+          <td valign="top">Next argument is the name of the table for the input file that follows it, instead
+            of the file's name; the input may be <tt>-</tt>, standard input, whose table is otherwise named
+            <tt>stdin</tt>, or a named pipe<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--daemon</tt></td>
+          <td valign="top">Keep running, and profile each file named on standard input, one per line,
+            writing its SQL next to it as <tt><i>table</i>.sql</tt>; stop at the end of the input<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--watch</tt></td>
+          <td valign="top">Next argument is a directory in which to profile each new <tt>.csv</tt>,
+            <tt>.tsv</tt> or <tt>.txt</tt> file once it has been written, as with <tt>--daemon</tt>; may be
+            repeated; runs until killed<br>
+          </td>
+        </tr>
+        <tr>
+          <td valign="top" width="20"><tt>--listen</tt></td>
+          <td valign="top">Next argument is a port on the local host on which to accept file names to profile,
+            one per line, as with <tt>--daemon</tt>, answering each with <tt>OK</tt> and the SQL file or
+            <tt>ERROR</tt> and the reason; runs until killed<br>
+          </td>
+        </tr>
       </tbody>
     </table>
 
@@ -119,6 +240,10 @@ import com.opencsv.CSVReader;
  * We incorporate opencsv-3.3, slightly modified to remove its dependence on Apache StringUtils, to parse
  * the input csv files.
  * 
+ * The work on each file is done by a SchemaInferrer, configured by Options, which yields a TableProfile
+ * that a SqlRenderer turns into SQL.  These keep no static state, so other programs can use them
+ * directly, e.g., to profile many files in one JVM, from several threads at once.
+ * 
  * @author psz
  * April 18, 2015
  * revised September 2, 2020
@@ -137,24 +262,48 @@ import com.opencsv.CSVReader;
  *  -m max number of possibly unique values/key to process
  *  -b empty column is NOT treated as NULL (normally \N), but as value
  *  -p print progress reports as the program runs
+ *  --progress-every seconds between progress reports, given as next argument
+ *  --inserts write the data as extended INSERT statements instead of LOAD DATA
+ *  --max-statement maximum bytes per INSERT statement, given as next argument
+ *  --threads number of threads formatting INSERT statements, given as next argument
+ *  --histograms write MySQL histogram statements and a JSON statistics file per table
+ *  --buckets number of histogram buckets, given as next argument
+ *  --enum max distinct values of a text column declared as ENUM, given as next argument
+ *  --enum-bytes max total bytes of the values of an ENUM, given as next argument
+ *  --metrics file to hold per-file and per-column performance metrics as JSON, given as next argument
+ *  --jmx publish scan progress as a JMX MXBean
+ *  --jobs number of files scanned at the same time, given as next argument
+ *  --key-budget max distinct values held by -k over all columns and files, given as next argument
+ *  --table name of the table for the input file that follows, given as next argument; - is stdin
+ *  --daemon keep running, profiling the files named on stdin, each to its own .sql file next to it
+ *  --watch directory in which to profile new files as they arrive, given as next argument
+ *  --listen local port on which to accept names of files to profile, given as next argument
 
  */
 public class Csv2Mysql {
 	
-	static char commaC = CSVParser.DEFAULT_SEPARATOR;
-	static char quoteC = CSVParser.DEFAULT_QUOTE_CHARACTER;
-	static char escapeC = CSVParser.DEFAULT_ESCAPE_CHARACTER;
-	static boolean namesOnLine1 = true;
-	static String utf = "";
-	static boolean keys = false;
-	static int maxVals = 1000000;
-	static boolean blanksAreNull = true;
-	static boolean floatUnique = false;
+	static Options options = null;
+	static SchemaInferrer inferrer = null;
+	static SqlRenderer renderer = null;
 	static boolean progress = false;
-	static final int reportEvery = 100000;
+	static String metricsFile = null;
+	static ArrayList<Metrics> metrics = new ArrayList<Metrics>();
+	static boolean jmx = false;
+	static ScanMonitor monitor = new ScanMonitor();
+	static int jobs = 1;
+	static boolean daemon = false;
+	static ArrayList<String> watchDirs = new ArrayList<String>();
+	static int listenPort = -1;
+	static boolean inserts = false;
+	static int maxStatement = InsertWriter.DEFAULT_MAX_STATEMENT;
+	static int nThreads = Runtime.getRuntime().availableProcessors();
 	static String outFileName = "mysql_load.sql";
 	static ArrayList<String> files = new ArrayList<String>();
-	static FileWriter fw = null;
+	// The tables named by --table, by input file
+	static HashMap<String,String> tableNames = new HashMap<String,String>();
+	// The input file name that stands for standard input
+	static final String STDIN = "-";
+	static Writer fw = null;
 
 	/** The main program. Takes arguments that are either options or file names.
 	 * @param args the shell's program arguments
@@ -162,10 +311,13 @@ public class Csv2Mysql {
 	public static void main(String[] args) {
 				
 		boolean printedHelp = false;
+		Options.Builder opts = Options.builder();
+		long keyBudget = -1;
+		String table = null;
 
 		for (int a = 0; a < args.length; a++) {
 			String arg = args[a];
-			if (arg.equals("-g")) namesOnLine1 = false;
+			if (arg.equals("-g")) opts.header(false);
 			else if (arg.equals("-o") && a+1 < args.length) {
 				a++;
 				outFileName = args[a];
@@ -173,64 +325,142 @@ public class Csv2Mysql {
 			else if (arg.equals("-c") && a+1 < args.length) {
 				a++;
 				// It's a very bad idea to undefine the separator character!!!
-				commaC = (args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER;
+				opts.separator((args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER);
 			}
 			else if (arg.equals("-q") && a+1 < args.length) {
 				a++;
-				quoteC = (args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER;
+				opts.quote((args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER);
 			}
 			else if (arg.equals("-e") && a+1 < args.length) {
 				a++;
-				escapeC = (args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER;
+				opts.escape((args[a].length() > 0) ? args[a].charAt(0) : CSVParser.NULL_CHARACTER);
 			}
 			else if (arg.equals("-h")) {
 				printHelp();
 				printedHelp = true;
 			}
 			else if (arg.equals("-u")) {
-				utf = "UTF8";
-				maxIndexLength = (int)textMaxU[0];
+				opts.utf8();
 			}
 			else if (arg.equalsIgnoreCase("--utf8mb4")) {
-				utf = "UTF8MB4";
+				opts.utf8mb4();
 			}
 			else if (arg.equals("-k"))
-				keys = true;
+				opts.uniqueKeys(true);
 			else if (arg.equals("-z"))
-				intPat = intPatNZ;
+				opts.leadingZeroText(true);
 			else if (arg.equals("-f"))
-				floatUnique = true;
+				opts.floatKeys(true);
 			else if (arg.equals("-m") && a+1 < args.length) {
 				a++;
-				maxVals = Integer.valueOf(args[a]);
+				opts.maxKeyValues(Integer.valueOf(args[a]));
 			}
 			else if (arg.equals("-b"))
-				blanksAreNull = false;
+				opts.blanksAreNull(false);
 			else if (arg.equals("-p"))
 				progress = true;
-			else files.add(arg);
+			else if (arg.equalsIgnoreCase("--inserts"))
+				inserts = true;
+			else if (arg.equalsIgnoreCase("--max-statement") && a+1 < args.length) {
+				a++;
+				maxStatement = Integer.valueOf(args[a]);
+			}
+			else if (arg.equalsIgnoreCase("--threads") && a+1 < args.length) {
+				a++;
+				nThreads = Math.max(1, Integer.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--histograms"))
+				opts.histograms(true);
+			else if (arg.equalsIgnoreCase("--buckets") && a+1 < args.length) {
+				a++;
+				opts.buckets(Integer.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--enum") && a+1 < args.length) {
+				a++;
+				opts.enumValues(Integer.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--enum-bytes") && a+1 < args.length) {
+				a++;
+				opts.enumBytes(Integer.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--metrics") && a+1 < args.length) {
+				a++;
+				metricsFile = args[a];
+			}
+			else if (arg.equalsIgnoreCase("--jmx"))
+				jmx = true;
+			else if (arg.equalsIgnoreCase("--progress-every") && a+1 < args.length) {
+				a++;
+				monitor.reportNanos = Math.max(1, Long.valueOf(args[a])) * 1000000000L;
+			}
+			else if (arg.equalsIgnoreCase("--jobs") && a+1 < args.length) {
+				a++;
+				jobs = Math.max(1, Integer.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--key-budget") && a+1 < args.length) {
+				a++;
+				keyBudget = Math.max(1, Long.valueOf(args[a]));
+			}
+			else if (arg.equalsIgnoreCase("--daemon"))
+				daemon = true;
+			else if (arg.equalsIgnoreCase("--watch") && a+1 < args.length) {
+				a++;
+				watchDirs.add(args[a]);
+			}
+			else if (arg.equalsIgnoreCase("--listen") && a+1 < args.length) {
+				a++;
+				listenPort = Integer.valueOf(args[a]);
+			}
+			else if (arg.equalsIgnoreCase("--table") && a+1 < args.length) {
+				a++;
+				table = args[a];
+			}
+			else {
+				files.add(arg);
+				if (table != null) tableNames.put(arg, table);
+				table = null;
+			}
 		}
-		if (files.size()==0) {
+		// Files scanned at the same time share the memory for -k, so by default they are given half the heap,
+		// at about 200 bytes per distinct string.
+		if (keyBudget < 0 && jobs > 1) keyBudget = Runtime.getRuntime().maxMemory() / 400;
+		if (keyBudget > 0) opts.keyBudget(keyBudget);
+		options = opts.build();
+		if (daemon || !watchDirs.isEmpty() || listenPort >= 0) runDaemon(args);
+		else if (files.size()==0) {
 			if (!printedHelp) printHelp();
 		} else {
+			inferrer = new SchemaInferrer(options);
+			renderer = new SqlRenderer(options);
 			try {
 				// Output file should go to working directory, not that of inputs.
 //				File inFile1 = new File(files.get(0));
 //				File outFile1 = new File(inFile1.getParent(), outFileName);
 //				fw = new FileWriter(outFile1);
-				fw = new FileWriter(new File(outFileName));
-				fw.write("-- csv2mysql with arguments:");
-				for (String a: args) fw.write("\n--   " + a);
-				fw.write("\n\nwarnings\n\n");
+				OutputStream os = new FileOutputStream(new File(outFileName));
+				if (isGzipFileName(outFileName)) os = new GZIPOutputStream(os, 1 << 16);
+				fw = new BufferedWriter(new OutputStreamWriter(os, options.charset()), 1 << 16);
+				writeHeader(fw, args);
 			} catch (IOException e) {
 				System.err.println("Could not create output file.");
 				e.printStackTrace();
 				System.exit(1);
 			}
+			monitor.startRun(files);
+			if (jmx) {
+				try {
+					monitor.register();
+				} catch (JMException e) {
+					System.err.println("Could not register the JMX monitor.");
+					e.printStackTrace();
+				}
+			}
 			long startTime = System.currentTimeMillis();
-			for (String inFile: files)
+			if (jobs > 1 && files.size() > 1) processInParallel();
+			else for (String inFile: files)
 				try {
-					processFile(inFile);
+					Metrics m = processFile(inFile, fw, new File(outFileName).getAbsoluteFile().getParentFile());
+					if (m != null) metrics.add(m);
 				} catch (IOException e1) {
 					System.err.println("Error in processing input file " + inFile);
 					e1.printStackTrace();
@@ -243,391 +473,287 @@ public class Csv2Mysql {
 				System.exit(2);
 			}
 			if (progress) System.out.println("Completed " + files.size() + " files in " + toTime(System.currentTimeMillis() - startTime));
+			if (metricsFile != null) writeMetrics(args, System.currentTimeMillis() - startTime);
 		}
 	}
 
+	/** Writes the comment that starts each output file, recording the program's arguments.
+	 * @param out where to write it
+	 * @param args the program's arguments
+	 * @throws IOException
+	 */
+	static void writeHeader(Writer out, String[] args) throws IOException {
+		out.write("-- csv2mysql with arguments:");
+		for (String a: args) out.write("\n--   " + a);
+		out.write("\n\nwarnings\n\n");
+	}
+
+	/** Runs as a Daemon: the files on the command line are profiled first, each to its own SQL file, then
+	 * those that arrive in the watched directories, on the port, or, with --daemon alone, on stdin.
+	 * The Daemon is given its own SchemaInferrer and ScanMonitor, and none of the other state of a run.
+	 * @param args the program's arguments, recorded in each SQL file
+	 */
+	private static void runDaemon(String[] args) {
+		ScanMonitor mon = new ScanMonitor();
+		mon.reportNanos = monitor.reportNanos;
+		Daemon d = new Daemon(new SchemaInferrer(options), mon, jobs, args);
+		d.progress = progress;
+		d.inserts = inserts;
+		d.maxStatement = maxStatement;
+		d.insertThreads = nThreads;
+		if (jmx) {
+			try {
+				d.monitor.register();
+			} catch (JMException e) {
+				System.err.println("Could not register the JMX monitor.");
+				e.printStackTrace();
+			}
+		}
+		d.warmUp();
+		for (String inFile: files) d.submit(new File(inFile));
+		try {
+			if (listenPort >= 0) d.listen(listenPort);
+			if (!watchDirs.isEmpty()) d.watch(watchDirs);
+			else if (listenPort < 0) d.serve(System.in, null);
+			else Thread.currentThread().join();
+		} catch (IOException e) {
+			System.err.println("Error in daemon: " + e);
+			e.printStackTrace();
+			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		d.shutdown();
+	}
+
+	/** Processes the files with a pool of --jobs threads.  The largest files are started first, so that a
+	 * large file is not left to run alone at the end.  Each file's SQL is spooled to a temporary file next to
+	 * the output file, and the spools are copied to the output in the order of the command line as soon as
+	 * each file and all those before it are done.
+	 */
+	private static void processInParallel() {
+		int n = files.size();
+		File dir = new File(outFileName).getAbsoluteFile().getParentFile();
+		File[] spools = new File[n];
+		ArrayList<Future<Metrics>> results = new ArrayList<Future<Metrics>>(Collections.nCopies(n, null));
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(new File(files.get(b)).length(), new File(files.get(a)).length()));
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs, n));
+		try {
+			for (int i: order) {
+				String inFile = files.get(i);
+				try {
+					File spool = spools[i] = File.createTempFile("csv2mysql", ".sql", dir);
+					results.set(i, pool.submit(() -> {
+						try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spool), options.charset()), 1 << 16)) {
+							return processFile(inFile, w, dir);
+						}
+					}));
+				} catch (IOException e) {
+					System.err.println("Could not create a temporary file for input file " + inFile);
+					e.printStackTrace();
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				if (results.get(i) == null) continue;
+				try {
+					Metrics m = results.get(i).get();
+					if (m != null) metrics.add(m);
+					try (Reader sr = new InputStreamReader(new FileInputStream(spools[i]), options.charset())) {
+						char[] buf = new char[1 << 16];
+						for (int k; (k = sr.read(buf)) > 0; ) fw.write(buf, 0, k);
+					}
+				} catch (ExecutionException e) {
+					System.err.println("Error in processing input file " + files.get(i));
+					e.getCause().printStackTrace();
+				} catch (IOException e) {
+					System.err.println("Error copying the output of input file " + files.get(i));
+					e.printStackTrace();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				spools[i].delete();
+			}
+		} finally {
+			pool.shutdownNow();
+			for (File spool: spools) if (spool != null) spool.delete();
+		}
+	}
+
+	/** Prints a message about a file, marked with the file's name if several files are scanned at once.
+	 * @param inFile the file
+	 * @param msg the message
+	 */
+	private static void say(String inFile, String msg) {
+		System.out.println(prefix(inFile) + msg);
+	}
+
+	/** @return the mark of messages about a file, empty unless several files are scanned at once */
+	private static String prefix(String inFile) {
+		return (jobs > 1) ? "[" + new File(inFile).getName() + "] " : "";
+	}
+
 	/** Processes one file for Csv2Mysql.
 	 * @param inFile The file name to process
+	 * @param out where to write the SQL for the file
+	 * @param statsDir the directory for the file's statistics, if --histograms
+	 * @return the Metrics of the file, or null if --metrics was not given or the file cannot be opened
 	 * @throws IOException
 	 */
-	private static void processFile(String inFile) throws IOException {
+	static Metrics processFile(String inFile, Writer out, File statsDir) throws IOException {
 		
-		if (progress) System.out.println("\nProcessing " + inFile);
+		if (progress) {
+			if (jobs == 1) System.out.println();
+			say(inFile, "Processing " + inFile);
+		}
 		CSVReader r = null;
 		File inf = new File(inFile);
+		// Standard input and named pipes can only be read once
+		boolean stream = inFile.equals(STDIN) || (inf.exists() && !inf.isFile());
+		if (stream && inserts) {
+			System.err.println("Cannot write INSERT statements for " + inFile + ", which can only be read once.");
+			return null;
+		}
+		Metrics m = (metricsFile != null) ? new Metrics(inFile) : null;
+		FileProgress fp = new FileProgress(inFile, inf.length());
+		fp.reporting = progress;
 		try {
-			if (!isGzipFileName(inFile)) {
-				FileReader fr = new FileReader(inf);
-				r = new CSVReader(fr, commaC, quoteC, escapeC);
-			}
-			else {
-				System.out.println("Gzip file.");
-				BufferedReader br = new BufferedReader(new InputStreamReader(
-						new GZIPInputStream(new FileInputStream(inFile))));
-				r = new CSVReader(br, commaC, quoteC, escapeC);
-			}
+			if (isGzipFileName(inFile) && !inFile.equals(STDIN)) say(inFile, "Gzip file.");
+			r = openReader(inFile, m, fp);
 		} catch (FileNotFoundException e) {
 			System.err.println("Could not open input file " + inFile);
 //			e.printStackTrace();
+			return null;
 		}
-		int nCols = -1;
-		String[] line;
-		boolean treatLineAsNames = namesOnLine1; // Only applies to first line
-		boolean treatedLineAsNames = false;	// Whether the first line really was names, so we skip on import.
-		/*
-		 * A column in SQL can always be a string, in which case we just compute its max length, to know what kind of 
-		 * string data type to make it.  However, if every element of a column is of the correct format to be represented
-		 * as an integer, float or double, date, time or datetime, then we should choose that representation.
-		 * Therefore, we iterate through the entries in the csv file and for each one determine whether each of its column
-		 * values excludes any of these possibilities. We also determine whether any of the entries are empty (i.e., 
-		 * representing NULL), to keep track of whether to permit null values in that column.
-		 * Although in principle we could try to keep track of the maximum precision and range of floating point numbers
-		 * so we can distinguish between what should be represented as FLOAT or DOUBLE, we simply choose DOUBLE for all
-		 * floating point.  We ignore the possibility of bit-string, etc., values. Integers are represented by BOOLEAN
-		 * (if all values are 0 or 1), TINYINT, SMALLINT, MEDIUMINT, INT, BIGINT, DECIMAL, depending on their range and
-		 * are declared UNSIGNED if all values are non-negative. BOOLEANs can't be UNSIGNED, though in current MySQL,
-		 * they are actually treated identically to TINYINT.
-		 * We could consider adding another parameter to suppress use of UNSIGNED integer fields. These do save
-		 * space when all integers in a field are non-negative because they effectively double the range of 
-		 * representable integers, so they can use a smaller data type.  However, reading these may be awkward;
-		 * for example, R issues warnings about converting unsigned to signed integers.  This option is not 
-		 * currently implemented. 
-		 * 
-		 * Dates are expected to be in the common SQL format YYY-MM-DD, times in HH:MI:SS, and datetime as a date
-		 * followed by a time, separated by either a space or the letter T. We also accept datetime in the standard Oracle
-		 * format (e.g., "09-sep-2012 15:00:00 US/Eastern"), but we ignore the timezone part; importing does, however, 
-		 * generate warnings about "Truncated incorrect datetime value".
-		 * 
-		 * Text fields can be VARCHAR(255), TINYTEXT, TEXT, MEDIUMTEXT, or LONGTEXT. These are all variable-length
-		 * fields, and we trim space characters off both ends of a value before calculating the needed length of a field,
-		 * and also when data are imported.  The number of characters that can be stored in such a field depend on the
-		 * encoding.  For UTF8, it is shorter by ~3x than for single-byte encodings.  In an earlier implementation, we
-		 * also supported short fixed-width CHAR(...) fields if every input in a text field was of the same length. We
-		 * eliminated this because some input files include spaces before/after a value, and it's not helpful to keep
-		 * these. 
-		 * 
-		 * For each column, we keep track of whether we have evidence that its values can be of each possible type.
-		 * Values are 0 = unknown, 1 = possible, -1 = impossible (some value cannot be that type)
-		 * We test a new value unless the column's interpretation is already impossible. If it matches, we set 1,
-		 * but if not, -1.
-		 * 
-		 * If unique keys are to be created, we keep track of whether all the values in a column are unique.
-		 * In MySQL, multiple NULL values may appear in a column that is the basis of a unique key, but
-		 * this is said not to be the case in some SQL implementations, such as MS SQL Server. It is, however, the
-		 * standard.  For each column, we maintain a HashSet of all the non-NULL values, but shortcut the process as
-		 * soon as we find a duplicate value.  If all values are unique, we do add a UNIQUE KEY constraint in the
-		 * generated table definition.
-		 * The problem with this method is that at the time we check for uniqueness, we do not yet know the eventual
-		 * data type of the column, so the uniqueness is in terms of string representation.  However, if the column
-		 * turns out to be INT, say, then multiple distinct strings may represent the same value, e.g., "01" and "1".
-		 * Therefore, we also maintain a RangeTree to keep track of distinct values of integer data, which is also
-		 * much more efficient.
-		 * 
-		 */
-		int[] canBeInt = null, canBeFloat = null, canBeDouble = null, canBeDate = null, canBeTime = null, 
-				canBeDateTime = null, canBeOracleDateTime = null, canBeOracleDate = null;
-		boolean[] nullable = null;
-		BigInteger[] minInts = null, maxInts = null;
-		long[] colLengths = null;
-		String[] cols = null;
-		ArrayList<HashSet<String>> vals = null;
-		ArrayList<RangeTree> ivals = null;
-		int printCol = 0;
-		BigInteger iv = null;
-		boolean triedBigInt = false;
-
-		int lineNo = 0;
 		long startTime = System.currentTimeMillis();
-		/* We keep track for each column of the following:
-		 * Are all elements parsable as integers? Min and Max values
-		 * As floats? Min and Max values
-		 * As dates, times, or timestamps? (only in formats that can be input to MySql)
-		 * Only as character strings? Max length.
-		 */
-		while ((line = r.readNext()) != null) {
-			lineNo++;
-			if (progress && (lineNo % reportEvery) == 0) {
-				System.out.print(".");
-				printCol++;
-			}
-			if (nCols < 0) {
-				nCols = line.length;
-				// Initialize all the tracking vars now that we know how many columns
-				cols = new String[nCols];
-				canBeInt = new int[nCols];
-				canBeFloat = new int[nCols];
-				canBeDouble = new int[nCols];
-				canBeDate = new int[nCols];
-				canBeTime = new int[nCols];
-				canBeDateTime = new int[nCols];
-				canBeOracleDateTime = new int[nCols];
-				canBeOracleDate = new int[nCols];
-				nullable = new boolean[nCols];
-				minInts = new BigInteger[nCols];
-				maxInts = new BigInteger[nCols];
-				colLengths = new long[nCols];
-				vals = new ArrayList<HashSet<String>>(nCols);
-				ivals = new ArrayList<RangeTree>(nCols);
-				for (int i = 0; i < nCols; i++) {
-					cols[i] = "V" + i;
-					canBeInt[i] = 0;
-					canBeDouble[i] = 0;
-					canBeDate[i] = 0;
-					canBeTime[i] = 0;
-					canBeDateTime[i] = 0;
-					canBeOracleDateTime[i] = 0;
-					canBeOracleDate[i] = 0;
-					nullable[i] = false;
-					minInts[i] = new BigInteger("99999999999999999999999999999999999999999999999999999999999999999");
-					maxInts[i] = new BigInteger("-99999999999999999999999999999999999999999999999999999999999999999");
-					colLengths[i] = 0L;
-					if (keys) {
-						vals.add(new HashSet<String>());
-						ivals.add(new RangeTree());
-					}
-				}
-			}
-			else if (nCols != line.length) {
-				complainWrongLength(line, lineNo, nCols);
-				break;
-			}
-			if (!treatLineAsNames || !goodNames(line)) {
-				for (int c = 0; c < line.length; c++) {
-					String v = line[c].trim();
-					if (v.equals("\\N") || (blanksAreNull && v.equals(""))) nullable[c] = true;
-					else {
-						if (keys) {
-							RangeTree t = ivals.get(c);
-							if ((t != null) && (canBeInt[c] >= 0)) {
-								BigInteger vi = interpretAsBigInt(v);
-								if (!t.add(vi)) {
-									// Either non-integer or duplicate
-									ivals.set(c,  null);
-									if (progress && vi !=null) {
-										if (printCol > 0) System.out.println("");
-										System.out.println("Col " + c + " (" + cols[c] + ") is not unique as integers.");
-										printCol = 0;
-									}
-								}
-							}
-							HashSet<String> s = vals.get(c);
-							if (s != null) {
-								if (v.length() > maxIndexLength) {
-									vals.set(c, null);
-									if (progress) {
-										if (printCol > 0) System.out.println("");
-										System.out.println("Col " + c + " (" + cols[c] + ") is too long for unique key (" + v.length() + ").");
-										printCol = 0;
-									}
-								}
-								else if (!s.contains(v)) {
-									s.add(v);
-									if (s.size() > maxVals) {
-										vals.set(c,  null);
-										if (progress) {
-											if (printCol > 0) System.out.println("");
-											System.out.println("Col " + c + " (" + cols[c] + ") has > " + maxVals 
-													+ " distinct string values.");
-											System.out.println((ivals.get(c) == null || canBeInt[c] < 0) 
-													? "  ... it will not be considered as being a UNIQUE KEY."
-													: "  ... it will only be considered as a possible integer UNIQUE KEY.");
-											printCol = 0;
-										}
-									}
-								}
-								else {
-									vals.set(c, null);
-									if (progress) {
-										if (printCol > 0) System.out.println("");
-										System.out.println("Col " + c + " (" + cols[c] + ") is not unique.");
-										printCol = 0;
-									}
-								}
-							}
-						}
-						triedBigInt = false; // Don't convert to BigInteger twice (for INT or FLOAT/DOUBLE)
-						if (canBeDate[c] >= 0) canBeDate[c] = isDate(v) ? 1 : -1;
-						if (canBeOracleDate[c] >= 0) canBeOracleDate[c] = isOracleDate(v) ? 1 : -1;
-						if (canBeTime[c] >= 0) canBeTime[c] = isTime(v) ? 1 : -1;
-						if (canBeDateTime[c] >= 0) canBeDateTime[c] = isDateTime(v) ? 1 : -1;
-						if (canBeOracleDateTime[c] >= 0) canBeOracleDateTime[c] = isOracleDateTime(v) ? 1 : -1;
-						if (canBeInt[c] >= 0) {
-							iv = interpretAsBigInt(v);
-							triedBigInt = true;
-							if (iv == null) canBeInt[c] = -1;
-							else {
-								canBeInt[c] = 1;
-								if (iv.compareTo(minInts[c]) < 0) minInts[c] = iv;
-								if (iv.compareTo(maxInts[c]) > 0) maxInts[c] = iv;
-							}
-						}
-						if (canBeDouble[c] >= 0 || canBeFloat[c] >= 0) {
-							// int can be float or double
-							iv = (triedBigInt) ? iv : interpretAsBigInt(v);
-							int floatType = floatKind(v);
-							if (canBeFloat[c] >= 0)
-								canBeFloat[c] = (floatType == FLOAT || iv != null) ? 1 : -1;
-							if (canBeDouble[c] >= 0)
-								canBeDouble[c] = (floatType == FLOAT || floatType == DOUBLE || iv != null) ? 1 : -1; 
-						}
-						if (v.length() > colLengths[c]) {
-							colLengths[c] = v.length();
-						}
-					}
-				}
-			} else {
-				for (int c = 0; c < line.length; c++) {
-					cols[c] = line[c].trim();
-				}
-				lineNo--;	// Don't count header line
-				treatedLineAsNames = true;
-			}	// end of iteration over elements of an entry				
-			treatLineAsNames = false;	// Possible only for first line
-		}	// end of iteration over entries in csv
-		if (progress && printCol > 0) System.out.println("");
+		String tableName = tableNames.get(inFile);
+		if (tableName == null) tableName = inFile.equals(STDIN) ? "stdin" : tableName(inf.getName());
+		TableProfile p;
+		try {
+			p = inferrer.infer(tableName, inFile, r, m, fp, progress ? msg -> say(inFile, msg) : null,
+					msg -> warn(inFile, msg));
+		} finally {
+			r.close();
+		}
 		
 		// Now we generate the SQL to define the table that corresponds to this file:
-		String tableName = inf.getName();
-		int dot = tableName.lastIndexOf(".");
-		if (dot > 1) tableName = tableName.substring(0, dot);
-		
-		// Each line ends with a comma, an optional comment, and newline, except the first.
-		// We actually output these at the start of a new line, to avoid an extra comma at end.
-		StringBuilder sb = new StringBuilder();
-		sb.append("DROP TABLE IF EXISTS " + tableName + ";\n");
-		String sep = " (";
-		String comment = "\t-- rows=" + lineNo;
-		sb.append("CREATE TABLE " + tableName);
-		for (int c = 0; c < nCols; c++) {
-			sb.append(sep);
-			sb.append(comment);
-			sb.append("\n");
-			sep = ",";
-			comment = "";
-			sb.append("   " + cols[c]);
-			if (canBeInt[c] > 0) {
-				if (keys && vals.get(c) != null && !areUniqueIntegers(vals.get(c))) {
-					vals.set(c, null);
-					if (progress) System.out.println("Col " + c + " (" + cols[c] + ") has unique strings but not integers.");
-				}
-				BigInteger[] numberTops = numberMax;
-				if (minInts[c].compareTo(bigZero) >= 0) numberTops = numberMaxU;
-				for (int i = 0; i < numberTops.length; i++) {
-					if (maxInts[c].compareTo(numberTops[i]) <= 0) {
-						sb.append(" " + numberTypes[i]);
-						if (numberTops == numberMaxU && numberTypes[i] != "BOOLEAN") sb.append(" UNSIGNED");
-						break;
-					}
-				}
+		StringBuilder sb = new StringBuilder(renderer.createTable(p));
+		if (inserts) {
+			// Read the file again, now that we know the column types, and write out its data.
+			out.write(sb.toString());
+			sb.setLength(0);
+			List<TableProfile.Column> cols = p.getColumns();
+			int[] kinds = new int[cols.size()];
+			for (int c = 0; c < kinds.length; c++)
+				kinds[c] = InsertWriter.kindOf(cols.get(c).getType(), cols.get(c).isOracleDate(), cols.get(c).isOracleDateTime());
+			r = openReader(inFile, null, null);
+			if (p.hasHeaderRow()) r.readNext();
+			InsertWriter iw = new InsertWriter(tableName, kinds, options.blanksAreNull, maxStatement, nThreads);
+			iw.write(r, p.getRows(), out);
+			r.close();
+			out.write("\n");
+		}
+		// Data from standard input must be saved to a file to be loaded; we suppose it is named for its table
+		else if (inFile.equals(STDIN)) sb.append(renderer.loadData(p, tableName + ".csv"));
+		else sb.append(renderer.loadData(p, getRootFilenameFromGzipFilename(inf.getName())));
+		if (options.histograms) {
+			// The table's statistics go in a sidecar file next to the output file
+			String json = renderer.histograms(p, sb);
+			try (Writer sw = new OutputStreamWriter(new FileOutputStream(new File(statsDir, tableName + ".stats.json")),
+					StandardCharsets.UTF_8)) {
+				sw.write(json);
 			}
-			else if (canBeFloat[c] > 0) {
-				if (keys) ivals.set(c, null);
-				if (keys && vals.get(c) != null) {
-					if (!floatUnique) vals.set(c, null);
-					else if (!areUniqueDoubles(vals.get(c))) {
-						vals.set(c, null);
-						if (progress) System.out.println("Col " + c + " (" + cols[c] + ") has unique strings but not Floats.");
-					}
-				}
-				sb.append(" FLOAT");
-			}
-			else if (canBeDouble[c] > 0) {
-				if (keys) ivals.set(c, null);
-				if (keys && vals.get(c) != null) {
-					if (!floatUnique) vals.set(c, null);
-					else if (!areUniqueDoubles(vals.get(c))) {
-						vals.set(c, null);
-						if (progress) System.out.println("Col " + c + " (" + cols[c] + ") has unique strings but not Doubles.");
-					}
-				}
-				sb.append(" DOUBLE");
-			}
-			else if (canBeDateTime[c] > 0 || canBeOracleDateTime[c] > 0) {
-				if (keys) ivals.set(c, null);
-				sb.append(" DATETIME");
-			}
-			else if (canBeDate[c] > 0 || canBeOracleDate[c] > 0) {
-				if (keys) ivals.set(c, null);
-				sb.append(" DATE");
-			}
-			else if (canBeTime[c] > 0) {
-				if (keys) ivals.set(c, null);
-				sb.append(" TIME");
-			}
-			else {	// Chars
-				if (keys) ivals.set(c, null);
-				String textType = whichText(colLengths[c], utf);
-				if (textType==null) textType = "LONGTEXT";	// should never happen
-				sb.append(" " + textType);
-				comment =  "\t-- max=" + colLengths[c];
-			}
-			if (!nullable[c]) sb.append(" NOT NULL");
-		}
-		// Here is where to add UNIQUE KEY!
-		if (keys) {
-			for (int c = 0; c < nCols; c++) {
-				BigInteger nVals = BigInteger.ZERO; 
-				if (ivals.get(c) != null) nVals = ivals.get(c).nInRange();
-				if (vals.get(c) != null) nVals = BigInteger.valueOf(vals.get(c).size());
-				if (nVals.compareTo(BigInteger.ZERO) > 0) {
-					sb.append(sep);
-					sb.append(comment);
-					sb.append("\n");
-					comment = "\t-- nvals=" + nVals;
-					sb.append("  UNIQUE KEY " + tableName + "_" + cols[c] + " (" + cols[c] + ")");
-				}					
-			}
-		}
-		if (comment != "") {
-			sb.append(comment);
-			sb.append("\n  )");
-		}
-		else sb.append(")");
-		if (!utf.equals("")) sb.append("\n  CHARACTER SET = " + utf);
-		sb.append(";\n\n");
-		sb.append("LOAD DATA LOCAL INFILE \'" + getRootFilenameFromGzipFilename(inf.getName()) + 
-				"\' INTO TABLE " + tableName + "\n");
-		sb.append("   FIELDS TERMINATED BY \'" + quoteIfNeeded(commaC) + "\'" +
-				" ESCAPED BY \'" + quoteIfNeeded(escapeC) + "\'" +
-				" OPTIONALLY ENCLOSED BY \'" + quoteIfNeeded(quoteC) + "\'\n");
-		sb.append("   LINES TERMINATED BY \'\\n\'\n");
-		if (treatedLineAsNames) sb.append("   IGNORE 1 LINES\n");
-		sep = "   (";
-		for (int c = 0; c < nCols; c++) {
-			sb.append(sep + "@" + cols[c]);
-			sep = ",";
-		}
-		sb.append(")\n");
-		sep = " SET\n";
-		for (int c = 0; c < nCols; c++) {
-			sb.append(sep + "   " + cols[c] + " = ");
-			sep = ",\n";
-			String expr = "@" + cols[c];
-			if (canBeOracleDateTime[c] > 0) expr = "STR_TO_DATE(" + expr + ",\"%d-%b-%Y %H:%i:%s\")";
-			else if (canBeOracleDate[c] > 0) expr = "STR_TO_DATE(" + expr + ",\"%d-%b-%Y\")";
-			else expr = "trim(" + expr + ")";
-			if (nullable[c]) expr = "IF(@" + cols[c] + "=\'\', NULL, " + expr + ")";
-			sb.append(expr);
-		}
-		sb.append(";\n\n");
+		}
 		
-		fw.write(sb.toString());
+		out.write(sb.toString());
+		if (m != null) m.end();
 		if (progress) {
-			System.out.println(inFile + ": " + lineNo + " entries; " + toTime(System.currentTimeMillis() - startTime));
+			say(inFile, inFile + ": " + p.getRows() + " entries; " + toTime(System.currentTimeMillis() - startTime));
 		}
+		return m;
 	}
 	
-	/** Given a char, returns a String containing that char or a string containing 
-	 * two characters, a \ followed by the char if it needs to be quoted (i.e, if it
-	 * is itself a \ or ').  If the char is the null character, the empty string is returned.
-	 * @param c
-	 * @return a String holding the input char or quoting it or empty if \0.
+	/** The table for a file is named for the file, without its extension.
+	 * @param fileName the name of the file, without its directory
+	 * @return the name of the table
+	 */
+	static String tableName(String fileName) {
+		int dot = fileName.lastIndexOf(".");
+		return (dot > 1) ? fileName.substring(0, dot) : fileName;
+	}
+
+	/** Opens a csv file, which may be gzip'd, for reading.  Standard input and named pipes are read in
+	 * large blocks, and standard input is taken to be gzip'd if it starts as gzip data do.
+	 * @param inFile The file name, or - for standard input
+	 * @param m if not null, the Metrics that count the bytes read and time the decoding
+	 * @param fp if not null, the progress of the file, to be followed by the ScanMonitor
+	 * @return a CSVReader for the file, using the comma, quote and escape characters of the options
+	 * @throws IOException if the file cannot be opened
+	 */
+	private static CSVReader openReader(String inFile, Metrics m, FileProgress fp) throws IOException {
+		boolean stdin = inFile.equals(STDIN);
+		InputStream in = stdin ? new FileInputStream(FileDescriptor.in) : new FileInputStream(inFile);
+		boolean gzip = isGzipFileName(inFile) && !stdin;
+		if (stdin || !new File(inFile).isFile()) {
+			BufferedInputStream b = new BufferedInputStream(in, 1 << 16);
+			if (stdin) gzip = isGzipData(b);
+			in = b;
+		}
+		if (m != null || fp != null) {
+			CountingInputStream counter = new CountingInputStream(in);
+			if (m != null) m.counter = counter;
+			if (fp != null) fp.counter = counter;
+			in = counter;
+		}
+		if (gzip) {
+			in = new GZIPInputStream(in, 1 << 16);
+			// Also count the bytes after decompression, for the throughput of the data itself
+			if (fp != null) in = fp.uncompressed = new CountingInputStream(in);
+		}
+		// Only now, as a file whose gzip header cannot be read never ends its scan
+		if (fp != null) monitor.startFile(fp);
+		Reader rd = new InputStreamReader(in, options.charset());
+		if (m != null) rd = m.timer = new TimingReader(rd);
+		return inferrer.reader(rd);
+	}
+
+	/** Checks whether a stream starts with the two bytes that start gzip data, without consuming them.
+	 * @param in the stream
+	 * @return true if it looks gzip'd
+	 * @throws IOException if the stream cannot be read
 	 */
-	private static String quoteIfNeeded(char c) {
-		String ans = String.valueOf(c);
-		if (c == CSVParser.NULL_CHARACTER) ans = "";
-		if (c == '\'' || c == '\\') ans = "\\" + ans;
-		return ans;
+	private static boolean isGzipData(BufferedInputStream in) throws IOException {
+		in.mark(2);
+		int b0 = in.read();
+		int b1 = in.read();
+		in.reset();
+		return b0 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b1 == (GZIPInputStream.GZIP_MAGIC >> 8);
+	}
+
+	/** Writes the Metrics of all the files processed as a JSON document.
+	 * @param args the program's arguments, recorded in the document
+	 * @param millis the time taken by the whole run
+	 */
+	private static void writeMetrics(String[] args, long millis) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"arguments\": [");
+		for (int a = 0; a < args.length; a++) sb.append((a > 0) ? ", " : "").append(Histogram.jsonString(args[a]));
+		sb.append("],\n \"millis\": ").append(millis);
+		sb.append(",\n \"files\": [");
+		String sep = "\n ";
+		for (Metrics m: metrics) {
+			sb.append(sep).append(m.toJson());
+			sep = ",\n ";
+		}
+		sb.append("\n ]}\n");
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(metricsFile), StandardCharsets.UTF_8)) {
+			w.write(sb.toString());
+		} catch (IOException e) {
+			System.err.println("Could not write metrics file " + metricsFile);
+			e.printStackTrace();
+		}
 	}
 
 	/**
@@ -637,7 +763,7 @@ public class Csv2Mysql {
 	 * @param filename
 	 * @return boolean whether filename looks like the name of a gzip file 
 	 */
-	private static boolean isGzipFileName(String filename) {
+	static boolean isGzipFileName(String filename) {
 		int dotPosn = filename.lastIndexOf('.');
 		if (dotPosn < 0) return false;
 		String extn = filename.substring(dotPosn + 1);
@@ -645,58 +771,21 @@ public class Csv2Mysql {
 		return false;
 	}
 	
-	private static String getRootFilenameFromGzipFilename(String filename) {
+	static String getRootFilenameFromGzipFilename(String filename) {
 		if (isGzipFileName(filename)) {
 			int dotPosn = filename.lastIndexOf('.');
 			return filename.substring(0,  dotPosn);
 		}
 		return filename;
 	}
-	/** 		
-	  This is a heuristic check to make sure that the first line of the .csv file, if 
-		 it's said to contain the names of columns, has reasonable column names.
-		 It can only be heuristic, because MySQL allows a very broad range of column names
-		 as long as they are included in backquote characters; hence almost any first line could be
-		 interpreted that way.
-		 Our heuristic assumes that all column names will consist only of the characters [0-9a-zA-Z$_]
-		 and will not start with a digit.
-
-	 * @param line an array of purported names
-	 * @return true if each name is valid according to our heuristic.
-	 */
-	private static boolean goodNames(String[] line) {
-		// This is a heuristic check to make sure that the first line of the .csv file, if 
-		// it's said to contain the names of columns, has reasonable column names.
-		// It can only be heuristic, because MySQL allows a very broad range of column names
-		// as long as they are included in backquote characters; hence almost any first line could be
-		// interpreted that way.
-		// Our heuristic assumes that all column names will consist only of the characters [0-9a-zA-Z$_]
-		// and will not start with a digit.
-		boolean ok = true;
-		for (String name: line) {
-			String nameTrimmed = name.trim();
-			if (!goodNamePattern.matcher(nameTrimmed).matches()) {
-				if (ok) System.err.println("1st line of file should list column names, but");
-				System.err.println(" \"" + nameTrimmed + "\" is not (heuristically) a good name.");
-				ok = false;
-			}
-		}
-		return ok;
-	}
-	
-	private static final Pattern goodNamePattern = Pattern.compile("[a-zA-Z$_][0-9a-zA-Z$_]*");
-
-	/** Issue a warning message if some line has the wrong number of fields. 
-	 * @param line the line
-	 * @param lineNo line number to report
-	 * @param nCols its actual number of columns
+	/** Prints a warning about a file on stderr, marking each of its lines with the file's name if several
+	 * files are scanned at once.  It is printed at once, so that it is not interleaved with those of other files.
+	 * @param inFile the file
+	 * @param msg the warning
 	 */
-	private static void complainWrongLength(String[] line, int lineNo, int nCols) {
-		System.err.println("Line " + lineNo + " has " + line.length + " elements instead of " + nCols + ":");
-		for (int i = 0; i < Math.min(maxElementsToPrint, line.length); i++) System.err.println("  " + i + ": " + line[i]);
+	private static void warn(String inFile, String msg) {
+		System.err.println(prefix(inFile) + msg.replace("\n", "\n" + prefix(inFile)));
 	}
-	
-	private final static int maxElementsToPrint = 5;
 
 	/** Prints a help message if the program is called with no files to process
 	 * 
@@ -716,7 +805,7 @@ public class Csv2Mysql {
 		 "",
 		 "The following options may be given on the command line:",
 		 "  -g No column names are given in the first line of the csv; use generated names",
-		 "  -o File name to hold output; default is mysql_load.sql",
+		 "  -o File name to hold output; default is mysql_load.sql; gzip'd if the name ends in .gz",
 		 "  -c comma, given as next argument [default ',']",
 		 "  -q quote, given as next argument [default '\"']",
 		 "  -e escape, given as next argument [default '\\']",
@@ -727,7 +816,32 @@ public class Csv2Mysql {
 		 "  -z integers whose first digit is 0 are taken to be strings",
 		 "  -m max number of possibly unique values/key to process if -k [default 100000]",
 		 "  -b empty column is NOT treated as NULL (normally \\N), but as value",
-		 "  -p print progress reports; each . is " + reportEvery + " rows; non-uniqueness is also reported if -k"};
+		 "  -p print progress reports: bytes read, throughput and ETA, for the current file and all files;",
+		 "     non-uniqueness is also reported if -k",
+		 "  --progress-every seconds between progress reports if -p, given as next argument [default 10]",
+		 "  --inserts write the data as extended INSERT statements instead of LOAD DATA statements",
+		 "  --max-statement max bytes per INSERT statement, given as next argument [default " + InsertWriter.DEFAULT_MAX_STATEMENT + "]",
+		 "  --threads number of threads formatting INSERT statements, given as next argument [default #processors]",
+		 "  --histograms write ANALYZE TABLE ... UPDATE HISTOGRAM ... USING DATA statements (MySQL 8.0.31+)",
+		 "     and a <table>.stats.json statistics file per table, from statistics gathered during the scan",
+		 "  --buckets number of histogram buckets, given as next argument [default " + Histogram.DEFAULT_BUCKETS + "]",
+		 "  --enum text columns with at most this many distinct values, given as next argument, are",
+		 "     declared as ENUM [default 0, no ENUMs]",
+		 "  --enum-bytes max total bytes of the distinct values of an ENUM, given as next argument [default 4096]",
+		 "  --metrics file to hold performance metrics per file and column as JSON, given as next argument",
+		 "  --jmx publish the progress of the scan as the JMX MXBean " + ScanMonitor.OBJECT_NAME,
+		 "  --jobs number of files scanned at the same time, largest first, given as next argument [default 1];",
+		 "     the output is still in the order of the files on the command line",
+		 "  --key-budget max distinct values held by -k at a time, over all columns and files, given as next",
+		 "     argument [default unlimited with one job, otherwise max heap size / 400]",
+		 "  --table name of the table for the input file that follows it, given as next argument; the input",
+		 "     may be - for standard input (table stdin by default) or a named pipe",
+		 "  --daemon keep running, profiling each file named on stdin, one per line, to a <table>.sql next to it;",
+		 "     stops at the end of the input",
+		 "  --watch directory in which to profile each new .csv, .tsv or .txt file once written, as with",
+		 "     --daemon, given as next argument; may be repeated",
+		 "  --listen port on the local host on which to accept file names to profile, as with --daemon,",
+		 "     given as next argument; each is answered with OK <sql file> or ERROR <reason>"};
 	
 	/*
 	 * To deal with MySql BIGINT, we have to accept numbers that are larger than Java's int, hence the
@@ -794,17 +908,94 @@ public class Csv2Mysql {
 		return NOTFLOAT;
 	}
 		
+	// Significant decimal digits a FLOAT can hold without loss
+	static final int floatDigits = 7;
+	// MySQL's limits on the precision and scale of a DECIMAL
+	static final int maxDecimalPrecision = 65;
+	static final int maxDecimalScale = 30;
+	// Digit count that stands for "too many", e.g., for a number in scientific notation
+	static final int manyDigits = 0xFFFFF;
+
+	/** Measures how a number is written: the number of digits before the decimal point, not counting
+	 * leading zeros, the number after it, and the number of significant digits, i.e., all digits from the
+	 * first non-zero one, including trailing zeros, as these record the precision of the value.  A number
+	 * in scientific notation has manyDigits before the point, as it cannot be taken as a DECIMAL.  The
+	 * three counts are packed into a long, so no objects are allocated for each value.
+	 * @param s a String that is an integer or floating point number
+	 * @return the packed counts, to be taken apart by shapeInt, shapeFrac and shapeSig
+	 */
+	static long decimalShape(String s) {
+		int nInt = 0, nFrac = 0, nSig = 0;
+		boolean inFrac = false;
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (ch == '.') inFrac = true;
+			else if (ch >= '0' && ch <= '9') {
+				if (nSig > 0 || ch != '0') nSig++;
+				if (inFrac) nFrac++;
+				else if (nSig > 0) nInt++;
+			}
+			else if (ch == 'e' || ch == 'E') {
+				nInt = manyDigits;
+				break;
+			}
+		}
+		return ((long)Math.min(nSig, manyDigits) << 40) | ((long)Math.min(nInt, manyDigits) << 20)
+				| Math.min(nFrac, manyDigits);
+	}
+
+	static int shapeInt(long shape) {
+		return (int)(shape >>> 20) & manyDigits;
+	}
+
+	static int shapeFrac(long shape) {
+		return (int)shape & manyDigits;
+	}
+
+	static int shapeSig(long shape) {
+		return (int)(shape >>> 40) & manyDigits;
+	}
+
+	/** Forms the DECIMAL type that holds numbers with the given numbers of digits exactly.
+	 * @param nInt the most digits before the decimal point
+	 * @param nFrac the most digits after the decimal point
+	 * @return the type, or null if MySQL's DECIMAL cannot hold them
+	 */
+	static String decimalType(int nInt, int nFrac) {
+		int p = Math.max(1, nInt + nFrac);
+		if (nInt >= manyDigits || p > maxDecimalPrecision || nFrac > maxDecimalScale) return null;
+		return "DECIMAL(" + p + "," + nFrac + ")";
+	}
+
+	/** The number of bytes MySQL uses to store a given number of decimal digits of a DECIMAL: four for each
+	 * nine digits and one to four for the rest, separately for the integer and the fractional parts.
+	 * @param digits number of digits
+	 * @return number of bytes
+	 */
+	static int decimalBytes(int digits) {
+		return (digits / 9) * 4 + (((digits % 9) + 1) / 2);
+	}
+
 	/** Determines if its argument can be interpreted as a BigInteger
 	 * @param s The String representing the value 
 	 * @return The integer value or null if it cannot be thus interpreted
 	 */
 	static BigInteger interpretAsBigInt(String s) {
+		return interpretAsBigInt(s, intPat);
+	}
+
+	/** Determines if its argument can be interpreted as a BigInteger
+	 * @param s The String representing the value 
+	 * @param intPat the form of an integer, intPat or intPatNZ (which disallows leading 0)
+	 * @return The integer value or null if it cannot be thus interpreted
+	 */
+	static BigInteger interpretAsBigInt(String s, Pattern intPat) {
 		Matcher m = intPat.matcher(s);
 		if (!m.matches()) return null;
 		return new BigInteger(s);
 	}
 		
-	static Pattern intPat = Pattern.compile("(\\+|-)?\\d+");
+	static final Pattern intPat = Pattern.compile("(\\+|-)?\\d+");
 	static final Pattern intPatNZ = Pattern.compile("(\\+|-)?(0|[1-9]\\d*)");	// intPat that disallows leading 0
 	static final Pattern floatPat = Pattern.compile("(\\+|-)?(\\d+(\\.\\d*)|\\d*\\.\\d+)(E(\\+|-)?\\d+)?", Pattern.CASE_INSENSITIVE);
 //	static final Pattern doublePat = Pattern.compile("(\\+|-)?(\\d+(\\.\\d*)|\\d*\\.\\d+)(D(\\+|-)?\\d+)?", Pattern.CASE_INSENSITIVE);
@@ -942,29 +1133,155 @@ public class Csv2Mysql {
 	static final long[] textMaxU4 = {63, 63, 16383, 4194303, 1073741823};
 	static final long[] textMaxU = {84, 84, 21845, 5592405, 1431655765};
 	static final long[] textMax = {255, 255, 65535, 16777215, 4294967295L};
-	// Although the actual maximum length of a text index is 767, we limit ourselves to
-	// text fields that can fit in a VARCHAR(255), 
-	static int maxIndexLength = (int)textMax[0];
 	
-	/** Determines the smallest text datatype that will hold strings of length len. If utf, then the limits are smaller
-	 * because utf8 characters require more bytes to represent. Note that TINYTEXT is never chosen because
-	 * of its functional equivalence to VARCHAR(255).  The TEXT types are all stored in a record via pointers,
-	 * whereas VARCHAR is stored in-place, so I prefer VARCHAR for small fields but not large ones, because there
-	 * is a maximum record length 65,535 bytes, which is easy to overflow with large VARCHAR fields.
-	 * @param len maximum length of relevant character strings
-	 * @param utf whether the representation will be UTF8
-	 * @return the smallest text type that is large enough
-	 */
-	static String whichText(long len, String utf) {
-		long[] limits = textMax;
-		if (utf.equals("UTF8MB4")) limits = textMaxU4;
-		else if (utf.equals("UTF8")) limits = textMaxU;
-		for (int i = 0; i < limits.length; i++) {
-			if (len <= limits[i]) return textTypes[i];
-		}
-		return null;
+	// The length of a text column that has only NULL or empty values
+	static final long emptyTextChars = 255;
+	// InnoDB's limit on the declared size of a row, not counting TEXT contents stored off-page
+	static final long maxRowBytes = 65535;
+
+	/** Determines the smallest TEXT datatype that will hold strings of a given number of bytes. Note that
+	 * TINYTEXT is never chosen because of its functional equivalence to VARCHAR(255).
+	 * @param bytes maximum length of relevant character strings, in bytes
+	 * @return the smallest TEXT type that is large enough
+	 */
+	static String whichText(long bytes) {
+		for (int i = 2; i < textMax.length; i++) {
+			if (bytes <= textMax[i]) return textTypes[i];
+		}
+		return "LONGTEXT";	// should never happen
 	}
-	
+
+	/** The maximum number of bytes per character in the encoding.
+	 * @param utf whether the representation will be UTF8 or UTF8MB4
+	 * @return 1, 3 or 4
+	 */
+	static int bytesPerChar(String utf) {
+		if (utf.equals("UTF8MB4")) return 4;
+		if (utf.equals("UTF8")) return 3;
+		return 1;
+	}
+
+	/** The number of bytes a column of the given type contributes to the size of a row.  For VARCHAR
+	 * this is its declared maximum plus its length prefix; TEXT types count only their pointer, because
+	 * their contents are stored separately.
+	 * @param type the MySQL type
+	 * @param mb the maximum number of bytes per character
+	 * @return the number of bytes
+	 */
+	static long rowBytes(String type, int mb) {
+		if (type.startsWith("VARCHAR(")) {
+			long n = Long.parseLong(type.substring(8, type.length() - 1)) * mb;
+			return n + ((n > 255) ? 2 : 1);
+		}
+		if (type.startsWith("DECIMAL(")) {
+			int comma = type.indexOf(',');
+			int p = Integer.parseInt(type.substring(8, comma));
+			int sc = Integer.parseInt(type.substring(comma + 1, type.length() - 1));
+			return decimalBytes(p - sc) + decimalBytes(sc);
+		}
+		if (type.startsWith("ENUM(")) return 2;		// 1 if no more than 255 values
+		switch (type.replace(" UNSIGNED", "")) {
+		case "BOOLEAN": case "TINYINT": return 1;
+		case "SMALLINT": return 2;
+		case "MEDIUMINT": case "DATE": case "TIME": return 3;
+		case "INT": case "FLOAT": return 4;
+		case "DATETIME": return 5;
+		case "BIGINT": case "DOUBLE": return 8;
+		case "TINYTEXT": return 9;
+		case "TEXT": return 10;
+		case "MEDIUMTEXT": return 11;
+		default: return 12;
+		}
+	}
+
+	/** Chooses the types of the text columns of a table.  Each is declared as VARCHAR(n), where n is the
+	 * longest value seen, or 255 if every value is NULL or empty, as long as the declared row size stays
+	 * within InnoDB's limit of 65,535 bytes.
+	 * VARCHARs are stored within the row, so this is faster to sort, group and index than TEXT, which is
+	 * stored off-page.  If the row would be too large, the widest columns are changed to the smallest
+	 * sufficient TEXT type, one at a time, until the rest fit.
+	 * @param colTypes the types of all the columns; those of text columns are filled in
+	 * @param isText which columns are text
+	 * @param maxChars longest value of each column in characters
+	 * @param maxBytes longest value of each column in bytes
+	 * @param nullable which columns are nullable, as each takes a bit in the row
+	 * @param utf the encoding
+	 */
+	static void sizeTextColumns(String[] colTypes, boolean[] isText, long[] maxChars, long[] maxBytes,
+			boolean[] nullable, String utf) {
+		int mb = bytesPerChar(utf);
+		int nNullable = 0;
+		for (boolean b: nullable) if (b) nNullable++;
+		long total = (nNullable + 7) / 8;
+		for (int c = 0; c < colTypes.length; c++) {
+			if (isText[c]) {
+				// A column with no values yet may get them in the next file of a feed, so it gets the old default
+				long n = (maxChars[c] > 0) ? maxChars[c] : emptyTextChars;
+				// A single VARCHAR can hold no more than the whole row
+				colTypes[c] = (n * mb + 2 <= maxRowBytes) ? "VARCHAR(" + n + ")" : whichText(maxBytes[c]);
+			}
+			total += rowBytes(colTypes[c], mb);
+		}
+		while (total > maxRowBytes) {
+			int widest = -1;
+			for (int c = 0; c < colTypes.length; c++) {
+				if (isText[c] && colTypes[c].startsWith("VARCHAR")
+						&& (widest < 0 || maxChars[c] > maxChars[widest])) widest = c;
+			}
+			if (widest < 0) break;		// nothing more we can do
+			total -= rowBytes(colTypes[widest], mb);
+			colTypes[widest] = whichText(maxBytes[widest]);
+			total += rowBytes(colTypes[widest], mb);
+		}
+	}
+
+	// MySQL's limit on the number of members of an ENUM
+	static final int maxEnumValues = 65535;
+
+	/** Decides whether a text column whose distinct values all fit in its dictionary should be an ENUM.
+	 * We require each value to occur at least twice on average, so that a column that merely happens to
+	 * have few rows, e.g., names in a small table, is not frozen into an ENUM, and the values must be
+	 * acceptable to MySQL as ENUM members.
+	 * @param dict the column's dictionary
+	 * @return true if the column should be declared as ENUM
+	 */
+	static boolean isEnum(EnumDictionary dict) {
+		return dict.size() > 0 && 2L * dict.size() <= dict.total() && dict.isValidEnum();
+	}
+
+	/** Forms the ENUM type for a set of values.
+	 * @param values the members, in the order in which they are to be declared
+	 * @return the MySQL type
+	 */
+	static String enumType(String[] values) {
+		StringBuilder sb = new StringBuilder("ENUM(");
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) sb.append(',');
+			InsertWriter.appendQuoted(sb, values[i]);
+		}
+		return sb.append(')').toString();
+	}
+
+	/** Computes the number of bytes a String takes in UTF-8, without encoding it.
+	 * @param s the String
+	 * @return the encoded length
+	 */
+	static long utf8Length(CharSequence s) {
+		long n = s.length();
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (ch >= 0x80) {
+				if (ch < 0x800) n += 1;
+				else if (Character.isHighSurrogate(ch) && i + 1 < s.length()) {
+					n += 2;		// 4 bytes for the pair
+					i++;
+				}
+				else n += 2;
+			}
+		}
+		return n;
+	}
+
 	static final long hrPerDay = 24;
 	static final long minPerHr = 60;
 	static final long secPerMin = 60;
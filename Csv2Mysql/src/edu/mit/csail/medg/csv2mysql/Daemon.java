@@ -0,0 +1,354 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.opencsv.CSVReader;
+
+/** Runs Csv2Mysql as a long-lived process for feeds of many small files, for which starting a JVM would cost
+ * more than profiling a file.  The classes are loaded, the patterns compiled and the scanning code compiled
+ * by the JIT once, by a warm-up on generated data, and files are then profiled by a pool of --jobs threads
+ * as they come.  Files may be named on standard input or on a loopback socket (--listen), one per line,
+ * or may simply appear in a watched directory (--watch).  The SQL for each file is written next to it,
+ * as <i>table</i>.sql, and appears there only once it is complete; if a file cannot be profiled, its
+ * previous SQL file, if any, is left as it was.
+ *
+ * A Daemon keeps no global state: it profiles with its own {@link SchemaInferrer} and {@link SqlRenderer},
+ * and follows its files in its own {@link ScanMonitor}, so that the key budget and the files in progress
+ * are accounted for each Daemon alone.
+ *
+ * In a watched directory, only files whose names end in .csv, .tsv or .txt, possibly followed by .gz or .z,
+ * are profiled, and only once nothing has been written to them for a while, so that a file is not read
+ * while it is still being copied in.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class Daemon {
+
+	// A file in a watched directory is profiled once it has not changed for this long
+	static final long settleMillis = 1000;
+	static final Pattern dataFileName = Pattern.compile("[^.].*\\.(csv|tsv|txt)(\\.gz|\\.z)?", Pattern.CASE_INSENSITIVE);
+
+	final SchemaInferrer inferrer;
+	final SqlRenderer renderer;
+	final ScanMonitor monitor;
+	final ExecutorService pool;
+	final String[] args;
+	// Files in watched directories that have changed recently, with the time of their last change
+	final ConcurrentHashMap<Path,Long> settling = new ConcurrentHashMap<Path,Long>();
+	// Whether to print progress reports and messages about the columns (-p)
+	boolean progress = false;
+	// Whether to write the data as INSERT statements (--inserts), in statements of at most maxStatement
+	// bytes formatted by insertThreads threads
+	boolean inserts = false;
+	int maxStatement = InsertWriter.DEFAULT_MAX_STATEMENT;
+	int insertThreads = 1;
+
+	/** Creates a Daemon
+	 * @param inferrer profiles the files, with the Options that also govern how their SQL is written
+	 * @param monitor follows the progress of the files being profiled
+	 * @param threads the number of files to profile at the same time
+	 * @param args the program's arguments, recorded in each SQL file
+	 */
+	public Daemon(SchemaInferrer inferrer, ScanMonitor monitor, int threads, String[] args) {
+		this.inferrer = inferrer;
+		this.renderer = new SqlRenderer(inferrer.getOptions());
+		this.monitor = monitor;
+		this.pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		this.args = args;
+	}
+
+	/** Profiles generated data a few times, so that the scanning code is compiled before the first real
+	 * file arrives.
+	 */
+	void warmUp() {
+		StringBuilder sb = new StringBuilder("id,n,x,d,t,s\n");
+		for (int i = 0; i < 5000; i++) {
+			sb.append(i).append(',').append(i % 97 - 40).append(',').append(i % 1000).append('.').append(i % 7)
+				.append(",2020-01-").append(1 + i % 28).append(",2020-01-01 10:").append(10 + i % 50)
+				.append(":00,name").append(i % 300).append('\n');
+		}
+		String csv = sb.toString();
+		for (int k = 0; k < 5; k++) {
+			try {
+				inferrer.infer("warmup", new StringReader(csv));
+			} catch (IOException e) {
+				// cannot happen reading from a String
+			}
+		}
+	}
+
+	/** Profiles a file in the pool.  If it fails, the reason is printed on stderr.
+	 * @param file the file
+	 * @return the SQL file, when it has been written
+	 */
+	Future<File> submit(File file) {
+		return pool.submit(() -> {
+			try {
+				return profile(file);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("ERROR " + file + ": " + e);
+				throw e;
+			}
+		});
+	}
+
+	/** Profiles a file and writes its SQL next to it, first to a hidden temporary file that is then renamed,
+	 * and its statistics beside it if the Options ask for histograms.  Nothing is written unless the whole
+	 * file has been profiled.
+	 * @param file the file
+	 * @return the SQL file
+	 * @throws IOException if the file cannot be read or the SQL cannot be written
+	 */
+	File profile(File file) throws IOException {
+		long t0 = System.nanoTime();
+		// Standard input and named pipes are not profiled, as they could only be read once
+		if (!file.isFile()) throw new FileNotFoundException((file.exists() ? "Not a regular file " : "No such file ") + file);
+		Options options = inferrer.getOptions();
+		File dir = file.getAbsoluteFile().getParentFile();
+		String tableName = Csv2Mysql.tableName(file.getName());
+		File sql = new File(dir, tableName + ".sql");
+		File tmp = new File(dir, "." + tableName + ".sql.tmp");
+		String prefix = "[" + file.getName() + "] ";
+		FileProgress fp = new FileProgress(file.getPath(), file.length());
+		fp.reporting = progress;
+		TableProfile p;
+		try (CSVReader r = open(file, fp)) {
+			p = inferrer.infer(tableName, file.getPath(), r, null, fp, progress ? msg -> System.out.println(prefix + msg) : null,
+					msg -> System.err.println(prefix + msg.replace("\n", "\n" + prefix)));
+		}
+		StringBuilder sb = new StringBuilder(renderer.createTable(p));
+		try {
+			try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp.toPath()),
+					options.charset()), 1 << 16)) {
+				Csv2Mysql.writeHeader(w, args);
+				if (inserts) {
+					// Read the file again, now that we know the column types, and write out its data.
+					w.write(sb.toString());
+					sb.setLength(0);
+					writeInserts(file, p, w);
+					w.write("\n");
+				}
+				else sb.append(renderer.loadData(p, Csv2Mysql.getRootFilenameFromGzipFilename(file.getName())));
+				if (options.histograms) {
+					String json = renderer.histograms(p, sb);
+					try (Writer sw = new OutputStreamWriter(Files.newOutputStream(new File(dir, tableName + ".stats.json").toPath()),
+							StandardCharsets.UTF_8)) {
+						sw.write(json);
+					}
+				}
+				w.write(sb.toString());
+			}
+			Files.move(tmp.toPath(), sql.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete();
+		}
+		System.out.println(file + " -> " + sql + " in " + (System.nanoTime() - t0) / 1000000 + " ms");
+		return sql;
+	}
+
+	/** Opens a data file, which may be gzip'd, for reading, and tells the monitor of it.
+	 * @param file the file
+	 * @param fp if not null, the progress of the file, which counts the bytes read
+	 * @return a CSVReader for the file
+	 * @throws IOException if the file cannot be opened
+	 */
+	private CSVReader open(File file, FileProgress fp) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			if (fp != null) in = fp.counter = new CountingInputStream(in);
+			if (Csv2Mysql.isGzipFileName(file.getName())) {
+				in = new GZIPInputStream(in, 1 << 16);
+				// Also count the bytes after decompression, for the throughput of the data itself
+				if (fp != null) in = fp.uncompressed = new CountingInputStream(in);
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		// Only now, as a file that cannot be opened never ends its scan
+		if (fp != null) monitor.startFile(fp);
+		return inferrer.reader(new InputStreamReader(in, inferrer.getOptions().charset()));
+	}
+
+	/** Reads a profiled file again and writes its data as INSERT statements.
+	 * @param file the file
+	 * @param p its profile
+	 * @param out where to write the statements
+	 * @throws IOException if the file cannot be read or the statements cannot be written
+	 */
+	private void writeInserts(File file, TableProfile p, Writer out) throws IOException {
+		List<TableProfile.Column> cols = p.getColumns();
+		int[] kinds = new int[cols.size()];
+		for (int c = 0; c < kinds.length; c++)
+			kinds[c] = InsertWriter.kindOf(cols.get(c).getType(), cols.get(c).isOracleDate(), cols.get(c).isOracleDateTime());
+		try (CSVReader r = open(file, null)) {
+			if (p.hasHeaderRow()) r.readNext();
+			new InsertWriter(p.getName(), kinds, inferrer.getOptions().blanksAreNull, maxStatement, insertThreads)
+				.write(r, p.getRows(), out);
+		}
+	}
+
+	/** Waits for a profile and describes its outcome in one line.
+	 * @param file the file profiled
+	 * @param f its Future
+	 * @return "OK" and the SQL file, or "ERROR" and what went wrong
+	 */
+	static String outcome(String file, Future<File> f) {
+		try {
+			return "OK " + f.get();
+		} catch (ExecutionException e) {
+			return "ERROR " + file + ": " + e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "ERROR " + file + ": interrupted";
+		}
+	}
+
+	/** Profiles the files named on a stream, one per line, until its end, answering each on a writer
+	 * if one is given.
+	 * @param in the names
+	 * @param out if not null, where to write the outcome of each file, once it is known
+	 * @throws IOException if the stream cannot be read
+	 */
+	void serve(InputStream in, PrintWriter out) throws IOException {
+		BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		for (String line; (line = r.readLine()) != null; ) {
+			String name = line.trim();
+			if (name.isEmpty()) continue;
+			Future<File> f = submit(new File(name));
+			if (out != null) {
+				out.println(outcome(name, f));
+				out.flush();
+			}
+		}
+	}
+
+	/** Accepts connections on a loopback port, each of which names files to profile, one per line, and is
+	 * told the outcome of each, as "OK <i>sql file</i>" or "ERROR <i>file</i>: <i>reason</i>".
+	 * @param port the port
+	 * @throws IOException if the port cannot be opened
+	 */
+	void listen(int port) throws IOException {
+		ServerSocket ss = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		Thread t = new Thread(() -> {
+			while (true) {
+				try {
+					Socket s = ss.accept();
+					Thread c = new Thread(() -> {
+						try (Socket sock = s) {
+							serve(sock.getInputStream(), new PrintWriter(new OutputStreamWriter(sock.getOutputStream(),
+									StandardCharsets.UTF_8)));
+						} catch (IOException e) {
+							System.err.println("Error on connection: " + e);
+						}
+					}, "csv2mysql-client");
+					c.setDaemon(true);
+					c.start();
+				} catch (IOException e) {
+					System.err.println("Error accepting a connection on port " + port + ": " + e);
+				}
+			}
+		}, "csv2mysql-listen");
+		t.setDaemon(true);
+		t.start();
+		System.out.println("Listening on " + ss.getLocalSocketAddress());
+	}
+
+	/** Watches directories for new or changed data files, and profiles each once it has settled.  Never returns.
+	 * @param dirs the directories
+	 * @throws IOException if a directory cannot be watched
+	 */
+	void watch(List<String> dirs) throws IOException {
+		WatchService ws = FileSystems.getDefault().newWatchService();
+		for (String d: dirs) {
+			Paths.get(d).register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			System.out.println("Watching " + d);
+		}
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "csv2mysql-settle");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(this::submitSettled, settleMillis / 4, settleMillis / 4, TimeUnit.MILLISECONDS);
+		while (true) {
+			WatchKey key;
+			try {
+				key = ws.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			Path dir = (Path)key.watchable();
+			for (WatchEvent<?> e: key.pollEvents()) {
+				if (e.kind() == StandardWatchEventKinds.OVERFLOW) {
+					System.err.println("Too many changes in " + dir + "; some files may have been missed.");
+					continue;
+				}
+				Path name = (Path)e.context();
+				if (dataFileName.matcher(name.toString()).matches()) settling.put(dir.resolve(name), System.currentTimeMillis());
+			}
+			key.reset();
+		}
+	}
+
+	/** Profiles the files in watched directories that have not changed for settleMillis.
+	 */
+	private void submitSettled() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path,Long>> it = settling.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path,Long> e = it.next();
+			if (now - e.getValue() < settleMillis) continue;
+			it.remove();
+			File file = e.getKey().toFile();
+			if (file.isFile()) submit(file);
+		}
+	}
+
+	/** Waits for the files already submitted and stops the pool.
+	 */
+	void shutdown() {
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
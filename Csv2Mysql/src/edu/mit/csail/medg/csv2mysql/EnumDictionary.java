@@ -0,0 +1,150 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/** An EnumDictionary counts the distinct values of a column as long as there are few of them, to find
+ * columns that can be declared as ENUM.  It is bounded both in the number of distinct values and in
+ * their total size; once either limit is exceeded, {@link #add(String)} returns false and the caller
+ * should discard the dictionary.
+ *
+ * To keep the per-value cost low and avoid holding on to the Strings of the rows being read, the
+ * characters of the distinct values are copied into a single growing char array, and are found again
+ * through a small open-addressing hash table of indexes into that array.  Adding a value that is already
+ * present therefore allocates nothing.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class EnumDictionary {
+	final int maxValues;
+	final int maxBytes;
+	char[] chars = new char[64];
+	int used = 0;
+	int[] starts;
+	int[] lengths;
+	int[] hashes;
+	long[] counts;
+	int size = 0;
+	long bytes = 0;
+	// Open-addressing table of value index + 1; 0 marks an empty slot
+	int[] table;
+
+	/** Creates a new empty EnumDictionary
+	 * @param maxValues the maximum number of distinct values
+	 * @param maxBytes the maximum total length of the distinct values, in bytes
+	 */
+	public EnumDictionary(int maxValues, int maxBytes) {
+		this.maxValues = maxValues;
+		this.maxBytes = maxBytes;
+		int cap = Math.max(4, maxValues);
+		starts = new int[cap];
+		lengths = new int[cap];
+		hashes = new int[cap];
+		counts = new long[cap];
+		table = new int[Integer.highestOneBit(cap) * 4];
+	}
+
+	/** Counts one occurrence of a value.
+	 * @param v the value
+	 * @return false if the value would exceed the limits on the dictionary, which is then no longer valid
+	 */
+	public boolean add(String v) {
+		int h = v.hashCode();
+		int mask = table.length - 1;
+		int len = v.length();
+		for (int slot = mix(h) & mask; ; slot = (slot + 1) & mask) {
+			int idx = table[slot] - 1;
+			if (idx < 0) {
+				// A new value
+				if (size == maxValues) return false;
+				bytes += Csv2Mysql.utf8Length(v);
+				if (bytes > maxBytes) return false;
+				if (used + len > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, used + len));
+				v.getChars(0, len, chars, used);
+				starts[size] = used;
+				lengths[size] = len;
+				hashes[size] = h;
+				counts[size] = 1;
+				used += len;
+				table[slot] = ++size;
+				return true;
+			}
+			if (hashes[idx] == h && lengths[idx] == len && matches(idx, v)) {
+				counts[idx]++;
+				return true;
+			}
+		}
+	}
+
+	private boolean matches(int idx, String v) {
+		int start = starts[idx];
+		for (int i = 0; i < v.length(); i++) {
+			if (chars[start + i] != v.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** @return the number of distinct values */
+	public int size() {
+		return size;
+	}
+
+	/** @return the total number of values counted */
+	public long total() {
+		long n = 0;
+		for (int i = 0; i < size; i++) n += counts[i];
+		return n;
+	}
+
+	/** Returns the distinct values, most frequent first.
+	 * @return the values
+	 */
+	public String[] byFrequency() {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+		String[] ans = new String[size];
+		for (int i = 0; i < size; i++) ans[i] = new String(chars, starts[order[i]], lengths[order[i]]);
+		return ans;
+	}
+
+	/** Gives the number of occurrences of a value.
+	 * @param v the value
+	 * @return its count, or 0 if it is not in the dictionary
+	 */
+	public long count(String v) {
+		int mask = table.length - 1;
+		for (int slot = mix(v.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int idx = table[slot] - 1;
+			if (lengths[idx] == v.length() && matches(idx, v)) return counts[idx];
+		}
+		return 0;
+	}
+
+	/** Determines whether the values can be the members of a MySQL ENUM: none may be empty or longer than
+	 * 255 characters, and no two may be equal in a case- and accent-insensitive collation, as MySQL would
+	 * reject them as duplicates.
+	 * @return true if the values can form an ENUM
+	 */
+	public boolean isValidEnum() {
+		if (size == 0) return false;
+		Collator coll = Collator.getInstance(Locale.ROOT);
+		coll.setStrength(Collator.PRIMARY);
+		String[] vals = byFrequency();
+		for (String v: vals) {
+			if (v.isEmpty() || v.codePointCount(0, v.length()) > 255) return false;
+		}
+		Arrays.sort(vals, coll);
+		for (int i = 1; i < vals.length; i++) {
+			if (coll.compare(vals[i - 1], vals[i]) == 0) return false;
+		}
+		return true;
+	}
+}
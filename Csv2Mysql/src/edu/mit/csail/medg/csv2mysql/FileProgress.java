@@ -0,0 +1,126 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/** The progress of the scan of one file.  Csv2Mysql updates it as it goes, with plain writes that cost
+ * next to nothing; rates, the ETA and candidate counts are computed only when they are asked for, by
+ * the ScanMonitor, possibly from another thread, so they are snapshots that may be slightly stale.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class FileProgress {
+	final String file;
+	final long fileSize;
+	final long startNanos = System.nanoTime();
+	volatile CountingInputStream counter = null;
+	// Counts the bytes after decompression; null if the file is not compressed
+	volatile CountingInputStream uncompressed = null;
+	long rows = 0;
+	long lastReport = startNanos;
+	// The type candidates of the file's columns, in the order of Metrics.classifiers
+	volatile int[][] candidates = null;
+	volatile ArrayList<HashSet<String>> vals = null;
+	volatile ArrayList<RangeTree> ivals = null;
+	// Set when the ScanMonitor is told of the file; progress reports are printed only if reporting
+	volatile ScanMonitor monitor = null;
+	boolean reporting = false;
+
+	/** Creates the FileProgress of a file
+	 * @param file the file name
+	 * @param fileSize its size in bytes, or 0 if it is not known, e.g., for a pipe
+	 */
+	public FileProgress(String file, long fileSize) {
+		this.file = file;
+		this.fileSize = fileSize;
+	}
+
+	/** Notes the tracking variables of the file's columns, once they exist.
+	 * @param candidates the canBe... arrays, in the order of Metrics.classifiers
+	 * @param vals the distinct strings of each column, if -k
+	 * @param ivals the integer ranges of each column, if -k
+	 */
+	void setColumns(int[][] candidates, ArrayList<HashSet<String>> vals, ArrayList<RangeTree> ivals) {
+		this.vals = vals;
+		this.ivals = ivals;
+		this.candidates = candidates;
+	}
+
+	/** Notes the number of rows read so far, and now and then prints a progress report, if reporting.
+	 * @param rows the number of rows
+	 */
+	void update(long rows) {
+		this.rows = rows;
+		if (reporting && (rows & 1023) == 0 && monitor != null) monitor.report(this, false);
+	}
+
+	/** Notes the end of the scan of the file, with a final progress report if reporting.
+	 */
+	void done() {
+		ScanMonitor mon = monitor;
+		if (mon == null) return;
+		if (reporting) mon.report(this, true);
+		mon.endFile(this);
+	}
+
+	/** @return the number of bytes read so far, as stored, i.e., compressed if gzip'd */
+	long bytesRead() {
+		CountingInputStream c = counter;
+		return (c == null) ? 0 : c.getCount();
+	}
+
+	/** @return the number of bytes read so far after decompression, or -1 if the file is not compressed */
+	long uncompressedBytes() {
+		CountingInputStream u = uncompressed;
+		return (u == null) ? -1 : u.getCount();
+	}
+
+	double seconds() {
+		return Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+	}
+
+	double rowsPerSecond() {
+		return rows / seconds();
+	}
+
+	double bytesPerSecond() {
+		return bytesRead() / seconds();
+	}
+
+	/** @return the estimated number of seconds until the file is scanned, or -1 if unknown */
+	long etaSeconds() {
+		long done = bytesRead();
+		if (done == 0 || fileSize == 0) return -1;
+		return Math.round(Math.max(0, fileSize - done) / bytesPerSecond());
+	}
+
+	/** @return the number of columns, or 0 if not yet known */
+	int columns() {
+		int[][] cands = candidates;
+		return (cands == null) ? 0 : cands[0].length;
+	}
+
+	/** Counts the columns that may still be of a type.
+	 * @param k the index of the type in Metrics.classifiers
+	 * @return the number of columns
+	 */
+	int typeCandidates(int k) {
+		int[][] cands = candidates;
+		int n = 0;
+		if (cands != null) for (int state: cands[k]) if (state >= 0) n++;
+		return n;
+	}
+
+	/** @return the number of columns still being tracked as possible UNIQUE KEYs */
+	int uniqueKeyCandidates() {
+		ArrayList<HashSet<String>> v = vals;
+		ArrayList<RangeTree> iv = ivals;
+		if (v == null || iv == null) return 0;
+		int n = 0;
+		for (int c = 0; c < v.size() && c < iv.size(); c++) {
+			if (v.get(c) != null || iv.get(c) != null) n++;
+		}
+		return n;
+	}
+}
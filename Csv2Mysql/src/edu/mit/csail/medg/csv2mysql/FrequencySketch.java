@@ -0,0 +1,88 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/** A FrequencySketch counts how often each distinct value occurs in a column, in bounded memory.
+ *
+ * As long as the column has no more than <i>capacity</i> distinct values, the counts are exact,
+ * which is what is needed for a MySQL singleton histogram of a low-cardinality column.  Once more
+ * distinct values are seen, the sketch switches to the Misra-Gries "frequent items" algorithm:
+ * a value that is not already counted, arriving when all counters are in use, decrements every
+ * counter, and counters that reach zero are dropped.  The counts kept are then lower bounds, too
+ * low by at most the number of such decrements, and any value that occurs in more than 1/capacity
+ * of the rows is guaranteed to be retained.  The cost of the decrements is amortized against the
+ * increments that created the counts, so adding a value takes constant time on average.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class FrequencySketch {
+	final int capacity;
+	HashMap<String,long[]> counts;
+	long n = 0;
+	long decrements = 0;
+
+	/** Creates a new empty FrequencySketch
+	 * @param capacity the maximum number of distinct values whose counts are kept
+	 */
+	public FrequencySketch(int capacity) {
+		this.capacity = Math.max(capacity, 1);
+		counts = new HashMap<String,long[]>();
+	}
+
+	/** Counts one occurrence of a value.
+	 * @param val The value to add
+	 */
+	public void add(String val) {
+		n++;
+		long[] cnt = counts.get(val);
+		if (cnt != null) cnt[0]++;
+		else if (counts.size() < capacity) counts.put(val, new long[] {1L});
+		else {
+			// Misra-Gries: the new value and one occurrence of every counted value cancel out.
+			decrements++;
+			Iterator<Map.Entry<String,long[]>> it = counts.entrySet().iterator();
+			while (it.hasNext()) {
+				if (--it.next().getValue()[0] == 0) it.remove();
+			}
+		}
+	}
+
+	/** @return true if the counts are exact, i.e., there have never been more than capacity distinct values */
+	public boolean isExact() {
+		return decrements == 0;
+	}
+
+	/** @return the number of values added */
+	public long count() {
+		return n;
+	}
+
+	/** @return the maximum amount by which any count may be too low */
+	public long maxError() {
+		return decrements;
+	}
+
+	/** @return the number of distinct values currently counted */
+	public int size() {
+		return counts.size();
+	}
+
+	/** Returns the counted values, most frequent first.
+	 * @return a list of map entries from each value to its (possibly underestimated) count
+	 */
+	public ArrayList<Map.Entry<String,Long>> byFrequency() {
+		ArrayList<Map.Entry<String,Long>> ans = new ArrayList<Map.Entry<String,Long>>(counts.size());
+		for (Map.Entry<String,long[]> e: counts.entrySet()) {
+			ans.add(new java.util.AbstractMap.SimpleImmutableEntry<String,Long>(e.getKey(), e.getValue()[0]));
+		}
+		ans.sort((a, b) -> {
+			int cmp = Long.compare(b.getValue(), a.getValue());
+			return (cmp != 0) ? cmp : a.getKey().compareTo(b.getKey());
+		});
+		return ans;
+	}
+}
@@ -0,0 +1,464 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+
+/** Builds MySQL 8 histogram statistics from the sketches collected while scanning a file.
+ *
+ * MySQL (since 8.0.31) accepts a histogram in its own JSON format via
+ * <pre>ANALYZE TABLE t UPDATE HISTOGRAM ON c USING DATA '...'</pre>
+ * which, unlike <tt>UPDATE HISTOGRAM ... WITH n BUCKETS</tt>, does not read the table again.
+ * A column whose distinct values all fit in the requested number of buckets gets an exact
+ * <i>singleton</i> histogram from its {@link FrequencySketch}; other numeric and temporal columns
+ * get an <i>equi-height</i> histogram from their {@link QuantileSketch}.  High-cardinality text
+ * columns get no histogram, because their values cannot be summarized in bounded memory.
+ *
+ * Temporal values are sketched as seconds since 1970-01-01 (for times, seconds since midnight),
+ * and turned back into MySQL's textual format when the histogram is written.  DECIMAL values are
+ * sketched as doubles and written back rounded to the column's scale.  Because a double holds only
+ * about 15 significant digits, integer and DECIMAL columns whose values have more get singleton
+ * histograms, which are built from the exact values, but no equi-height histograms.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class Histogram {
+
+	/** MySQL's default number of histogram buckets */
+	public static final int DEFAULT_BUCKETS = 100;
+	/** MySQL's maximum number of histogram buckets */
+	public static final int MAX_BUCKETS = 1024;
+
+	static final long secPerDay = 86400;
+	/** Magnitude below which every integer is exactly a double */
+	static final double exactInt = 9007199254740992.0;
+	/** Magnitude, in units of the last digit, below which a decimal value survives conversion to a double */
+	static final double exactDecimal = 1e15;
+	static final DateTimeFormatter dateFmt = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	static final DateTimeFormatter dateTimeFmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+	static final DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS");
+
+	/** Maps a MySQL column type, as chosen by Csv2Mysql, to the data-type name used in histogram JSON.
+	 * @param sqlType the column type, e.g., "SMALLINT UNSIGNED" or "VARCHAR(255)"
+	 * @return the histogram data type, or null if we do not build histograms for that column type
+	 */
+	static String dataType(String sqlType) {
+		if (sqlType.startsWith("DECIMAL")) return "decimal";
+		// ENUM histograms are keyed by member index; ANALYZE TABLE builds those well enough from the table
+		if (sqlType.startsWith("ENUM")) return null;
+		if (sqlType.endsWith("UNSIGNED")) return "uint";
+		if (sqlType.endsWith("INT") || sqlType.equals("BOOLEAN")) return "int";
+		if (sqlType.equals("FLOAT") || sqlType.equals("DOUBLE")) return "double";
+		if (sqlType.equals("DATETIME")) return "datetime";
+		if (sqlType.equals("DATE")) return "date";
+		if (sqlType.equals("TIME")) return "time";
+		if (sqlType.startsWith("VARCHAR")) return "string";
+		return null;
+	}
+
+	/** Finds the scale of a DECIMAL column type, at which its histogram bounds are written.
+	 * @param sqlType the column type, e.g., "DECIMAL(6,2)"
+	 * @return the number of digits after the decimal point, or 0 if the type is not a DECIMAL
+	 */
+	static int scale(String sqlType) {
+		if (!sqlType.startsWith("DECIMAL(")) return 0;
+		int comma = sqlType.indexOf(',');
+		int close = sqlType.indexOf(')');
+		if (comma < 0 || close < comma) return 0;
+		return Integer.parseInt(sqlType.substring(comma + 1, close).trim());
+	}
+
+	/** MySQL collation id that corresponds to the default collation of the output's character set.
+	 * @param utf the character set name used by Csv2Mysql, "", "UTF8" or "UTF8MB4"
+	 * @return the collation id recorded in string histograms
+	 */
+	static int collationId(String utf) {
+		if (utf.equals("UTF8MB4")) return 255;	// utf8mb4_0900_ai_ci
+		if (utf.equals("UTF8")) return 33;		// utf8_general_ci
+		return 8;								// latin1_swedish_ci
+	}
+
+	/** Converts a date, time or datetime value, in any of the formats recognized by Csv2Mysql,
+	 * into a number of seconds, so that it can be added to a {@link QuantileSketch}.
+	 * @param s the (trimmed) value
+	 * @return seconds since the epoch for dates and datetimes, seconds since midnight for times,
+	 * or NaN if the value is not a valid temporal value (including MySQL's zero dates)
+	 */
+	static double temporalKey(String s) {
+		try {
+			Matcher m = Csv2Mysql.dateTimePat.matcher(s);
+			if (m.matches())
+				return epochDay(m.group("yr"), m.group("mo"), m.group("da")) * secPerDay
+						+ seconds(m.group(5), m.group(7), m.group(8), m.group(9));
+			m = Csv2Mysql.datePat.matcher(s);
+			if (m.matches()) return epochDay(m.group("yr"), m.group("mo"), m.group("da")) * secPerDay;
+			m = Csv2Mysql.timePat.matcher(s);
+			if (m.matches()) return seconds(m.group(1), m.group(3), m.group(4), m.group(5));
+			m = Csv2Mysql.oracleDateTimePat.matcher(s);
+			if (m.matches())
+				return epochDay(m.group("yr"), oracleMonth(m.group("mos")), m.group("da")) * secPerDay
+						+ seconds(m.group("hr"), m.group("mn"), m.group("se"), null);
+			m = Csv2Mysql.oracleDatePat.matcher(s);
+			if (m.matches()) return epochDay(m.group("yr"), oracleMonth(m.group("mos")), m.group("da")) * secPerDay;
+		} catch (DateTimeException e) {
+			// e.g., 2015-02-31 or 0000-00-00, which MySQL may accept but we cannot sketch
+		}
+		return Double.NaN;
+	}
+
+	private static long epochDay(String yr, String mo, String da) {
+		int y = Integer.parseInt(yr);
+		// MySQL's interpretation of two-digit years
+		if (yr.length() <= 2) y += (y < 70) ? 2000 : 1900;
+		return LocalDate.of(y, Integer.parseInt(mo), Integer.parseInt(da)).toEpochDay();
+	}
+
+	private static String oracleMonth(String mos) {
+		for (int i = 0; i < Csv2Mysql.monthNames.length; i++)
+			if (mos.equalsIgnoreCase(Csv2Mysql.monthNames[i])) return String.valueOf(i + 1);
+		return "0";
+	}
+
+	private static double seconds(String hr, String mn, String se, String frac) {
+		double s = Integer.parseInt(hr) * 3600 + Integer.parseInt(mn) * 60 + Integer.parseInt(se);
+		if (frac != null && frac.length() > 1) s += Double.parseDouble("0" + frac);
+		return s;
+	}
+
+	/** Converts a sketched value back into the JSON representation MySQL uses for the data type.
+	 * @param key the sketched value
+	 * @param dataType the histogram data type
+	 * @param scale the number of digits after the decimal point of a decimal value
+	 * @return a JSON number or string
+	 */
+	static String render(double key, String dataType, int scale) {
+		switch (dataType) {
+		case "int":
+		case "uint":
+			return new BigDecimal(Math.rint(key)).toBigInteger().toString();
+		case "double":
+			return Double.toString(key);
+		case "decimal":
+			return BigDecimal.valueOf(key).setScale(scale, RoundingMode.HALF_UP).toPlainString();
+		case "date":
+			return "\"" + LocalDate.ofEpochDay((long)Math.floor(key / secPerDay)).format(dateFmt) + "\"";
+		case "datetime": {
+			long sec = (long)Math.floor(key);
+			int nanos = (int)Math.round((key - sec) * 1e6) * 1000;
+			if (nanos >= 1000000000) {
+				sec++;
+				nanos = 0;
+			}
+			return "\"" + LocalDateTime.ofEpochSecond(sec, nanos, ZoneOffset.UTC).format(dateTimeFmt) + "\"";
+		}
+		case "time": {
+			long sec = (long)Math.floor(key);
+			int nanos = (int)Math.round((key - sec) * 1e6) * 1000;
+			if (nanos >= 1000000000) {
+				sec++;
+				nanos = 0;
+			}
+			return "\"" + LocalDateTime.ofEpochSecond(sec % secPerDay, nanos, ZoneOffset.UTC).format(timeFmt) + "\"";
+		}
+		default:
+			return null;
+		}
+	}
+
+	/** Converts an exact key back into the JSON representation MySQL uses for the data type.
+	 * @param key the key, from {@link #exactKey(String, String)}
+	 * @param dataType the histogram data type
+	 * @param scale the number of digits after the decimal point of a decimal value
+	 * @return a JSON number or string
+	 */
+	static String render(BigDecimal key, String dataType, int scale) {
+		switch (dataType) {
+		case "int":
+		case "uint":
+			return key.setScale(0, RoundingMode.HALF_UP).toPlainString();
+		case "decimal":
+			return key.setScale(scale, RoundingMode.HALF_UP).toPlainString();
+		default:
+			return render(key.doubleValue(), dataType, scale);
+		}
+	}
+
+	/** Whether the values of a column are all rendered exactly from the doubles in its quantile sketch.
+	 * @param dataType the histogram data type of the column
+	 * @param q the column's quantile sketch
+	 * @param scale the scale of a DECIMAL column
+	 * @return false if some integer or decimal value has too many digits for a double
+	 */
+	static boolean isExact(String dataType, QuantileSketch q, int scale) {
+		double bound;
+		switch (dataType) {
+		case "int":
+		case "uint":
+			bound = exactInt;
+			break;
+		case "decimal":
+			bound = exactDecimal / Math.pow(10, scale);
+			break;
+		default:
+			return true;
+		}
+		return Math.abs(q.min()) < bound && Math.abs(q.max()) < bound;
+	}
+
+	/** Converts a raw value of a column into the key by which it is ordered in a singleton histogram.
+	 * Integer and decimal values are kept exactly, because a BIGINT or a wide DECIMAL may not fit in a double.
+	 * @param s the value
+	 * @param dataType the histogram data type of the column
+	 * @return the key, or null if the value cannot be interpreted
+	 */
+	static BigDecimal exactKey(String s, String dataType) {
+		switch (dataType) {
+		case "int":
+		case "uint":
+		case "decimal":
+			try {
+				return new BigDecimal(s);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		default:
+			double k = key(s, dataType);
+			return (Double.isNaN(k) || Double.isInfinite(k)) ? null : new BigDecimal(k);
+		}
+	}
+
+	/** Converts a raw value of a column into the key by which it is sketched.
+	 * @param s the value
+	 * @param dataType the histogram data type of the column
+	 * @return the key, or NaN if the value cannot be interpreted
+	 */
+	static double key(String s, String dataType) {
+		switch (dataType) {
+		case "int":
+		case "uint":
+		case "double":
+		case "decimal":
+			return Double.parseDouble(s);
+		default:
+			return temporalKey(s);
+		}
+	}
+
+	/** Builds the MySQL histogram JSON for a column.
+	 * @param dataType the histogram data type of the column, from {@link #dataType(String)}
+	 * @param q the column's quantile sketch, or null if it was abandoned
+	 * @param f the column's frequency sketch, or null if it was abandoned
+	 * @param rows total number of rows, including NULLs
+	 * @param nulls number of NULL values
+	 * @param buckets the number of buckets requested
+	 * @param collationId the collation id to record
+	 * @param scale the scale of a DECIMAL column, from {@link #scale(String)}
+	 * @return the JSON text, or null if no histogram can be built
+	 */
+	static String toJson(String dataType, QuantileSketch q, FrequencySketch f, long rows, long nulls,
+			int buckets, int collationId, int scale) {
+		if (dataType == null || rows == 0 || rows == nulls) return null;
+		String bucketJson = null;
+		String kind = null;
+		if (f != null && f.isExact() && f.size() <= buckets) {
+			bucketJson = singletonBuckets(dataType, f, rows, scale);
+			kind = "singleton";
+		}
+		if (bucketJson == null && q != null && !dataType.equals("string") && isExact(dataType, q, scale)) {
+			bucketJson = equiHeightBuckets(dataType, q, rows, buckets, scale);
+			kind = "equi-height";
+		}
+		if (bucketJson == null) return null;
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"buckets\": ").append(bucketJson);
+		sb.append(", \"data-type\": \"").append(dataType).append("\"");
+		sb.append(", \"null-values\": ").append((double)nulls / rows);
+		sb.append(", \"collation-id\": ").append(collationId);
+		sb.append(", \"last-updated\": \"").append(LocalDateTime.now(ZoneOffset.UTC).format(dateTimeFmt)).append("\"");
+		sb.append(", \"sampling-rate\": 1.0");
+		sb.append(", \"histogram-type\": \"").append(kind).append("\"");
+		sb.append(", \"number-of-buckets-specified\": ").append(buckets).append("}");
+		return sb.toString();
+	}
+
+	private static String singletonBuckets(String dataType, FrequencySketch f, long rows, int scale) {
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		long cum = 0;
+		if (dataType.equals("string")) {
+			// Distinct strings, in the order of the column's case- and accent-insensitive collation, under which
+			// strings that differ only in case or accents are one value, as in EnumDictionary.isValidEnum
+			Collator coll = Collator.getInstance(Locale.ROOT);
+			coll.setStrength(Collator.PRIMARY);
+			TreeMap<String,Long> sorted = new TreeMap<String,Long>(coll);
+			for (Map.Entry<String,Long> e: f.byFrequency()) sorted.merge(e.getKey(), e.getValue(), Long::sum);
+			for (Map.Entry<String,Long> e: sorted.entrySet()) {
+				cum += e.getValue();
+				sb.append(sep).append("[\"base64:type254:")
+					.append(Base64.getEncoder().encodeToString(e.getKey().getBytes(StandardCharsets.UTF_8)))
+					.append("\", ").append((double)cum / rows).append("]");
+				sep = ", ";
+			}
+		}
+		else {
+			// Distinct strings may denote the same value, e.g., "1" and "01"
+			TreeMap<BigDecimal,Long> sorted = new TreeMap<BigDecimal,Long>();
+			for (Map.Entry<String,Long> e: f.byFrequency()) {
+				BigDecimal k = exactKey(e.getKey(), dataType);
+				if (k == null) return null;
+				sorted.merge(k, e.getValue(), Long::sum);
+			}
+			for (Map.Entry<BigDecimal,Long> e: sorted.entrySet()) {
+				cum += e.getValue();
+				sb.append(sep).append("[").append(render(e.getKey(), dataType, scale))
+					.append(", ").append((double)cum / rows).append("]");
+				sep = ", ";
+			}
+		}
+		return sb.append("]").toString();
+	}
+
+	private static String equiHeightBuckets(String dataType, QuantileSketch q, long rows, int buckets, int scale) {
+		int total = q.retained();
+		if (total == 0) return null;
+		double[] vals = new double[total];
+		long[] wts = new long[total];
+		q.sortedWeighted(vals, wts);
+		// Values with a fixed number of digits can have no more distinct ones than fit between the bounds
+		boolean integral = dataType.equals("int") || dataType.equals("uint") || dataType.equals("decimal");
+		double step = dataType.equals("decimal") ? Math.pow(10, -scale) : 1;
+		double perBucket = (double)q.count() / buckets;
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		long cum = 0;
+		int made = 0;
+		int i = 0;
+		while (i < total) {
+			// Gather whole runs of equal values into the bucket, because buckets may not overlap.
+			double lo = (made == 0) ? q.min() : vals[i];
+			long weight = 0;
+			int items = 0, distinct = 0;
+			double hi = vals[i];
+			while (i < total) {
+				double v = vals[i];
+				distinct++;
+				while (i < total && vals[i] == v) {
+					weight += wts[i];
+					items++;
+					i++;
+				}
+				hi = v;
+				if (cum + weight >= (made + 1) * perBucket) break;
+			}
+			if (i == total) hi = q.max();
+			cum += weight;
+			made++;
+			// Scale the distinct retained values up by the weight each retained item stands for.
+			double estDistinct = (double)distinct * weight / items;
+			if (integral) estDistinct = Math.min(estDistinct, Math.rint((hi - lo) / step) + 1);
+			long nDistinct = Math.max(1L, Math.min(weight, Math.round(estDistinct)));
+			sb.append(sep).append("[").append(render(lo, dataType, scale)).append(", ").append(render(hi, dataType, scale))
+				.append(", ").append((double)cum / rows).append(", ").append(nDistinct).append("]");
+			sep = ", ";
+		}
+		return sb.append("]").toString();
+	}
+
+	/** Builds the ANALYZE TABLE statement that installs a histogram.
+	 * @param tableName the table
+	 * @param colName the column
+	 * @param json the histogram, from {@link #toJson}
+	 * @return the SQL statement, terminated by a semicolon and newline
+	 */
+	static String statement(String tableName, String colName, String json) {
+		return "ANALYZE TABLE " + tableName + " UPDATE HISTOGRAM ON " + colName
+				+ " USING DATA '" + json.replace("\\", "\\\\").replace("'", "\\'") + "';\n";
+	}
+
+	/** Describes the statistics collected for a column as a JSON object, for the per-table sidecar file.
+	 * @param colName the column name
+	 * @param sqlType the column's MySQL type
+	 * @param rows total number of rows, including NULLs
+	 * @param nulls number of NULL values
+	 * @param minInt the smallest value, if the column holds integers, otherwise null
+	 * @param maxInt the largest value, if the column holds integers, otherwise null
+	 * @param q the column's quantile sketch, or null
+	 * @param f the column's frequency sketch, or null
+	 * @param histogram the column's histogram JSON, or null
+	 * @return the JSON text
+	 */
+	static String columnJson(String colName, String sqlType, long rows, long nulls, BigInteger minInt, BigInteger maxInt,
+			QuantileSketch q, FrequencySketch f, String histogram) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"name\": ").append(jsonString(colName));
+		sb.append(", \"type\": ").append(jsonString(sqlType));
+		sb.append(", \"rows\": ").append(rows);
+		sb.append(", \"nulls\": ").append(nulls);
+		String dt = dataType(sqlType);
+		int scale = scale(sqlType);
+		if (dt == null || dt.equals("string")) {
+			// no bounds worth reporting
+		}
+		else if (minInt != null && maxInt != null) {
+			sb.append(", \"min\": ").append(render(new BigDecimal(minInt), dt, scale));
+			sb.append(", \"max\": ").append(render(new BigDecimal(maxInt), dt, scale));
+		}
+		else if (q != null && q.count() > 0 && isExact(dt, q, scale)) {
+			sb.append(", \"min\": ").append(render(q.min(), dt, scale));
+			sb.append(", \"max\": ").append(render(q.max(), dt, scale));
+		}
+		if (f != null) {
+			sb.append(", \"topExact\": ").append(f.isExact());
+			if (f.isExact()) sb.append(", \"distinct\": ").append(f.size());
+			sb.append(", \"top\": [");
+			String sep = "";
+			ArrayList<Map.Entry<String,Long>> top = f.byFrequency();
+			for (Map.Entry<String,Long> e: top) {
+				sb.append(sep).append("{\"value\": ").append(jsonString(e.getKey()))
+					.append(", \"count\": ").append(e.getValue()).append("}");
+				sep = ", ";
+			}
+			sb.append("]");
+			if (!f.isExact()) sb.append(", \"countError\": ").append(f.maxError());
+		}
+		sb.append(", \"histogram\": ").append(histogram == null ? "null" : histogram);
+		return sb.append("}").toString();
+	}
+
+	/** Quotes a String as a JSON string literal.
+	 * @param s the String
+	 * @return the JSON literal, including the enclosing double quotes
+	 */
+	static String jsonString(String s) {
+		StringBuilder sb = new StringBuilder(s.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20) sb.append(String.format("\\u%04x", (int)c));
+				else sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
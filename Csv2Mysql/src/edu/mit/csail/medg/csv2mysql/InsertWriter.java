@@ -0,0 +1,231 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+import com.opencsv.CSVReader;
+
+/** Writes the contents of a csv file as extended (multi-row) INSERT statements, for servers on which
+ * LOAD DATA LOCAL INFILE is not permitted.
+ *
+ * Once the column types of a table are known, the file is read a second time.  The reading thread
+ * collects rows into chunks of about one statement's worth of input and hands each chunk to a pool of
+ * worker threads, which escape and format the values for their column types and pack the rows into
+ * <pre>INSERT INTO t VALUES (...),(...),...;</pre>
+ * statements of at most a given number of bytes, so that each fits under the server's
+ * <tt>max_allowed_packet</tt>.  The statements are written in the order of the input.  At most a few
+ * chunks per worker are in flight at a time, so memory use does not grow with the size of the file.
+ *
+ * Values are formatted as LOAD DATA would have interpreted them: they are trimmed, empty values (unless
+ * -b) and <tt>\N</tt> become NULL, numbers are written unquoted, and Oracle-style dates and datetimes
+ * are rewritten in SQL standard form.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class InsertWriter {
+
+	/** Default maximum size of one INSERT statement in bytes, well below MySQL's default max_allowed_packet */
+	public static final int DEFAULT_MAX_STATEMENT = 4 * 1024 * 1024;
+
+	// How each column's values are written
+	static final int QUOTED = 0;
+	static final int NUMBER = 1;
+	static final int ORACLE_DATE = 2;
+	static final int ORACLE_DATETIME = 3;
+
+	final String prefix;
+	final int[] kinds;
+	final boolean blanksAreNull;
+	final int maxBytes;
+	final int nThreads;
+
+	/** Creates an InsertWriter for one table.
+	 * @param tableName the table to insert into
+	 * @param kinds for each column, one of QUOTED, NUMBER, ORACLE_DATE or ORACLE_DATETIME
+	 * @param blanksAreNull whether empty values are written as NULL
+	 * @param maxBytes maximum size of a statement, in bytes
+	 * @param nThreads number of threads that format statements
+	 */
+	public InsertWriter(String tableName, int[] kinds, boolean blanksAreNull, int maxBytes, int nThreads) {
+		this.prefix = "INSERT INTO " + tableName + " VALUES ";
+		this.kinds = kinds;
+		this.blanksAreNull = blanksAreNull;
+		this.maxBytes = maxBytes;
+		this.nThreads = Math.max(1, nThreads);
+	}
+
+	/** Maps a MySQL column type chosen by Csv2Mysql to the way its values are written.
+	 * @param sqlType the column type
+	 * @param oracleDate whether the column holds Oracle-style dates
+	 * @param oracleDateTime whether the column holds Oracle-style datetimes
+	 * @return one of QUOTED, NUMBER, ORACLE_DATE or ORACLE_DATETIME
+	 */
+	static int kindOf(String sqlType, boolean oracleDate, boolean oracleDateTime) {
+		if (oracleDateTime) return ORACLE_DATETIME;
+		if (oracleDate) return ORACLE_DATE;
+		if (sqlType.endsWith("UNSIGNED") || sqlType.endsWith("INT") || sqlType.equals("BOOLEAN")
+				|| sqlType.startsWith("DECIMAL") || sqlType.equals("FLOAT") || sqlType.equals("DOUBLE")) return NUMBER;
+		return QUOTED;
+	}
+
+	/** Reads rows from r and writes them to out as INSERT statements.
+	 * @param r the reader, positioned at the first row to insert
+	 * @param maxRows the number of rows to insert; reading stops after these
+	 * @param out where to write the statements
+	 * @return the number of rows written
+	 * @throws IOException if reading or writing fails
+	 */
+	public long write(CSVReader r, long maxRows, Writer out) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+		ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		long rows = 0;
+		try {
+			String[] line;
+			ArrayList<String[]> chunk = new ArrayList<String[]>();
+			long chunkChars = 0;
+			while (rows < maxRows && (line = r.readNext()) != null) {
+				rows++;
+				chunk.add(line);
+				for (String v: line) chunkChars += v.length() + 3;
+				if (chunkChars >= maxBytes) {
+					submit(pool, pending, chunk, out);
+					chunk = new ArrayList<String[]>();
+					chunkChars = 0;
+				}
+			}
+			if (!chunk.isEmpty()) submit(pool, pending, chunk, out);
+			while (!pending.isEmpty()) out.write(take(pending));
+		} finally {
+			pool.shutdownNow();
+		}
+		return rows;
+	}
+
+	/** Hands a chunk to the pool, first writing out finished statements if too many chunks are in flight. */
+	private void submit(ExecutorService pool, ArrayDeque<Future<String>> pending, ArrayList<String[]> chunk,
+			Writer out) throws IOException {
+		while (pending.size() >= 2 * nThreads) out.write(take(pending));
+		pending.add(pool.submit(() -> format(chunk)));
+	}
+
+	private static String take(ArrayDeque<Future<String>> pending) throws IOException {
+		try {
+			return pending.removeFirst().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing INSERT statements", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Could not format INSERT statements", e.getCause());
+		}
+	}
+
+	/** Formats a chunk of rows as one or more INSERT statements, each at most maxBytes long.
+	 * @param chunk the rows
+	 * @return the statements
+	 */
+	String format(ArrayList<String[]> chunk) {
+		StringBuilder sb = new StringBuilder(maxBytes / 2);
+		StringBuilder tuple = new StringBuilder(256);
+		long stmtBytes = 0;
+		for (String[] line: chunk) {
+			tuple.setLength(0);
+			tuple.append('(');
+			for (int c = 0; c < line.length; c++) {
+				if (c > 0) tuple.append(',');
+				appendValue(tuple, line[c].trim(), (c < kinds.length) ? kinds[c] : QUOTED);
+			}
+			tuple.append(')');
+			long tupleBytes = Csv2Mysql.utf8Length(tuple) + 1;
+			if (stmtBytes > 0 && stmtBytes + tupleBytes + 2 > maxBytes) {
+				sb.append(";\n");
+				stmtBytes = 0;
+			}
+			if (stmtBytes == 0) {
+				sb.append(prefix);
+				stmtBytes = prefix.length();
+			}
+			else sb.append(',');
+			sb.append(tuple);
+			stmtBytes += tupleBytes;
+		}
+		if (stmtBytes > 0) sb.append(";\n");
+		return sb.toString();
+	}
+
+	/** Appends one value, formatted as a SQL literal for its column.
+	 * @param sb where to append
+	 * @param v the trimmed value
+	 * @param kind the column's kind
+	 */
+	void appendValue(StringBuilder sb, String v, int kind) {
+		if (v.equals("\\N") || (blanksAreNull && v.isEmpty())) {
+			sb.append("NULL");
+			return;
+		}
+		switch (kind) {
+		case NUMBER:
+			sb.append(v);
+			return;
+		case ORACLE_DATE:
+		case ORACLE_DATETIME:
+			String sql = oracleToSql(v, kind == ORACLE_DATETIME);
+			if (sql != null) sb.append('\'').append(sql).append('\'');
+			else appendQuoted(sb, v);	// and let MySQL complain about it
+			return;
+		default:
+			appendQuoted(sb, v);
+		}
+	}
+
+	/** Appends a string literal, escaped as in mysqldump output.
+	 * @param sb where to append
+	 * @param v the value
+	 */
+	static void appendQuoted(StringBuilder sb, String v) {
+		sb.append('\'');
+		for (int i = 0; i < v.length(); i++) {
+			char ch = v.charAt(i);
+			switch (ch) {
+			case 0: sb.append("\\0"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case 26: sb.append("\\Z"); break;
+			case '\'': sb.append("\\'"); break;
+			case '\\': sb.append("\\\\"); break;
+			default: sb.append(ch);
+			}
+		}
+		sb.append('\'');
+	}
+
+	/** Rewrites an Oracle-style date or datetime, e.g., 05-dec-2015 15:00:00 US/Eastern, as a
+	 * SQL date or datetime, ignoring any time zone, as STR_TO_DATE does in the LOAD DATA statement.
+	 * @param v the value
+	 * @param withTime whether the value should include a time
+	 * @return the SQL form, or null if the value does not have the expected form
+	 */
+	static String oracleToSql(String v, boolean withTime) {
+		Matcher m = (withTime ? Csv2Mysql.oracleDateTimePat : Csv2Mysql.oracleDatePat).matcher(v);
+		if (!m.matches()) return null;
+		int mo = 0;
+		String mos = m.group("mos");
+		for (int i = 0; i < Csv2Mysql.monthNames.length; i++)
+			if (mos.equalsIgnoreCase(Csv2Mysql.monthNames[i])) mo = i + 1;
+		StringBuilder sb = new StringBuilder(19);
+		sb.append(m.group("yr")).append('-');
+		if (mo < 10) sb.append('0');
+		sb.append(mo).append('-');
+		if (m.group("da").length() < 2) sb.append('0');
+		sb.append(m.group("da"));
+		if (withTime) sb.append(' ').append(m.group("hr")).append(':').append(m.group("mn")).append(':').append(m.group("se"));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,178 @@
+package edu.mit.csail.medg.csv2mysql;
+
+/** Metrics collects measurements of the processing of one csv file, to show where the time goes and
+ * which columns make a given feed slow.  It records, for the file, the bytes read, the rows processed
+ * and the time spent in each phase: decoding (I/O, decompression and character decoding), parsing
+ * into fields, and writing the output.  For each column, it records the time spent in classification
+ * (trying the candidate data types), in the uniqueness trackers of -k and in the statistics of
+ * --histograms and --enum, how many values each type test saw before the column was ruled out as
+ * that type, and the peak sizes of the column's HashSet of distinct strings and RangeTree of integers.
+ *
+ * Timing each value costs a few calls to System.nanoTime, so Csv2Mysql only creates a Metrics when
+ * --metrics is given.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class Metrics {
+
+	// The type tests, in the order of their counts in tested[]
+	static final String[] classifiers =
+		{"int", "float", "double", "date", "time", "datetime", "oracleDate", "oracleDateTime"};
+
+	final String file;
+	final long startNanos = System.nanoTime();
+	long bytesRead = 0;
+	long charsDecoded = 0;
+	long rows = 0;
+	long scanNanos = 0;
+	long readNanos = 0;
+	long decodeNanos = 0;
+	long writeNanos = 0;
+	long totalNanos = 0;
+	CountingInputStream counter = null;
+	TimingReader timer = null;
+
+	String[] cols;
+	String[] types;
+	long[] nulls;
+	long[] classifyNanos;
+	long[] uniqueNanos;
+	long[] statsNanos;
+	long[][] tested;
+	boolean[][] ruledOut;
+	int[] peakStrings;
+	int[] peakRanges;
+
+	/** Creates the Metrics for a file
+	 * @param file the file name
+	 */
+	public Metrics(String file) {
+		this.file = file;
+	}
+
+	/** Allocates the per-column measurements, once the number of columns is known.
+	 * @param nCols the number of columns
+	 */
+	void setColumns(int nCols) {
+		classifyNanos = new long[nCols];
+		uniqueNanos = new long[nCols];
+		statsNanos = new long[nCols];
+		tested = new long[nCols][classifiers.length];
+		ruledOut = new boolean[nCols][classifiers.length];
+		peakStrings = new int[nCols];
+		peakRanges = new int[nCols];
+	}
+
+	/** Counts the type tests applied to a value of a column.  A test is applied as long as the column has
+	 * not been ruled out as that type, including to the value that rules it out.
+	 * @param c the column
+	 * @param states for each classifier, its state after the value: -1 if the column has been ruled out
+	 */
+	void countTests(int c, int... states) {
+		long[] t = tested[c];
+		boolean[] out = ruledOut[c];
+		for (int k = 0; k < states.length; k++) {
+			if (!out[k]) {
+				t[k]++;
+				if (states[k] < 0) out[k] = true;
+			}
+		}
+	}
+
+	/** Notes the current sizes of a column's uniqueness trackers.
+	 * @param c the column
+	 * @param strings the number of distinct strings
+	 * @param ranges the number of ranges of integers
+	 */
+	void noteTrackers(int c, int strings, int ranges) {
+		if (strings > peakStrings[c]) peakStrings[c] = strings;
+		if (ranges > peakRanges[c]) peakRanges[c] = ranges;
+	}
+
+	/** Records the results of the scan of the file.
+	 * @param rows the number of data rows
+	 * @param cols the column names
+	 * @param types the column types chosen
+	 * @param nulls the number of NULLs in each column
+	 */
+	void endScan(long rows, String[] cols, String[] types, long[] nulls) {
+		this.scanNanos = System.nanoTime() - startNanos;
+		this.rows = rows;
+		this.cols = cols;
+		this.types = types;
+		this.nulls = nulls;
+		if (counter != null) bytesRead = counter.getCount();
+		if (timer != null) {
+			decodeNanos = timer.getNanos();
+			charsDecoded = timer.getChars();
+		}
+	}
+
+	/** Records the end of the processing of the file, after its SQL has been written.
+	 */
+	void end() {
+		totalNanos = System.nanoTime() - startNanos;
+		writeNanos = totalNanos - scanNanos;
+	}
+
+	private static String ms(long nanos) {
+		return String.format(java.util.Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/** Renders the metrics as a JSON object.
+	 * @return the JSON text
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"file\": ").append(Histogram.jsonString(file));
+		sb.append(",\n  \"bytesRead\": ").append(bytesRead);
+		sb.append(", \"charsDecoded\": ").append(charsDecoded);
+		sb.append(", \"rows\": ").append(rows);
+		sb.append(", \"rowsPerSec\": ").append(scanNanos > 0 ? Math.round(rows * 1e9 / scanNanos) : 0);
+		sb.append(", \"mbPerSec\": ").append(scanNanos > 0
+				? String.format(java.util.Locale.ROOT, "%.2f", bytesRead * 1e9 / scanNanos / (1 << 20)) : "0");
+		sb.append(",\n  \"millis\": {\"total\": ").append(ms(totalNanos));
+		sb.append(", \"scan\": ").append(ms(scanNanos));
+		sb.append(", \"decode\": ").append(ms(decodeNanos));
+		sb.append(", \"parse\": ").append(ms(Math.max(0, readNanos - decodeNanos)));
+		long classify = 0, unique = 0, stats = 0;
+		if (classifyNanos != null) {
+			for (long n: classifyNanos) classify += n;
+			for (long n: uniqueNanos) unique += n;
+			for (long n: statsNanos) stats += n;
+		}
+		sb.append(", \"classify\": ").append(ms(classify));
+		sb.append(", \"unique\": ").append(ms(unique));
+		sb.append(", \"statistics\": ").append(ms(stats));
+		sb.append(", \"write\": ").append(ms(writeNanos)).append("}");
+		sb.append(",\n  \"columns\": [");
+		String sep = "\n   ";
+		for (int c = 0; cols != null && c < cols.length; c++) {
+			sb.append(sep).append("{\"name\": ").append(Histogram.jsonString(cols[c]));
+			sb.append(", \"type\": ").append(types[c] == null ? "null" : Histogram.jsonString(types[c]));
+			sb.append(", \"nulls\": ").append(nulls[c]);
+			sb.append(", \"millis\": {\"classify\": ").append(ms(classifyNanos[c]));
+			sb.append(", \"unique\": ").append(ms(uniqueNanos[c]));
+			sb.append(", \"statistics\": ").append(ms(statsNanos[c])).append("}");
+			sb.append(", \"tested\": {");
+			for (int k = 0; k < classifiers.length; k++) {
+				if (k > 0) sb.append(", ");
+				sb.append("\"").append(classifiers[k]).append("\": ").append(tested[c][k]);
+			}
+			sb.append("}, \"ruledOut\": [");
+			String sep2 = "";
+			for (int k = 0; k < classifiers.length; k++) {
+				if (ruledOut[c][k]) {
+					sb.append(sep2).append("\"").append(classifiers[k]).append("\"");
+					sep2 = ", ";
+				}
+			}
+			sb.append("], \"peakDistinctStrings\": ").append(peakStrings[c]);
+			sb.append(", \"peakIntegerRanges\": ").append(peakRanges[c]).append("}");
+			sep = ",\n   ";
+		}
+		sb.append("\n  ]}");
+		return sb.toString();
+	}
+}
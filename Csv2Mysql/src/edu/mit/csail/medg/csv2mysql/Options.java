@@ -0,0 +1,206 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import com.opencsv.CSVParser;
+
+/** The settings that govern how a {@link SchemaInferrer} reads csv files and chooses column types, and how
+ * a {@link SqlRenderer} writes the SQL for them.  Options are immutable, so one instance may be shared by
+ * any number of inferences running at once; they are made by a {@link Builder}, e.g.,
+ * <pre>Options opts = Options.builder().separator('\t').utf8().uniqueKeys(true).build();</pre>
+ * Each setting corresponds to a command-line option of Csv2Mysql, noted on the Builder's methods.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public final class Options {
+	final char separator;
+	final char quote;
+	final char escape;
+	final boolean header;
+	final String encoding;
+	final int maxIndexLength;
+	final Pattern intPattern;
+	final boolean keys;
+	final boolean floatKeys;
+	final int maxKeyValues;
+	final long keyBudget;
+	final boolean blanksAreNull;
+	final boolean histograms;
+	final int buckets;
+	final int enumValues;
+	final int enumBytes;
+
+	private Options(Builder b) {
+		separator = b.separator;
+		quote = b.quote;
+		escape = b.escape;
+		header = b.header;
+		encoding = b.encoding;
+		maxIndexLength = b.maxIndexLength;
+		intPattern = b.leadingZeroText ? Csv2Mysql.intPatNZ : Csv2Mysql.intPat;
+		keys = b.keys;
+		floatKeys = b.floatKeys;
+		maxKeyValues = b.maxKeyValues;
+		keyBudget = b.keyBudget;
+		blanksAreNull = b.blanksAreNull;
+		histograms = b.histograms;
+		buckets = b.buckets;
+		enumValues = b.enumValues;
+		enumBytes = b.enumBytes;
+	}
+
+	/** @return a Builder holding the default settings */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/** @return the default Options */
+	public static Options defaults() {
+		return new Builder().build();
+	}
+
+	/** The character set in which input files are read and SQL is written.
+	 * @return UTF-8 if utf8() or utf8mb4(), otherwise the platform's default
+	 */
+	public Charset charset() {
+		return encoding.equals("") ? Charset.defaultCharset() : StandardCharsets.UTF_8;
+	}
+
+	/** @return the MySQL character set of the tables, "UTF8" or "UTF8MB4", or "" if unspecified */
+	public String encoding() {
+		return encoding;
+	}
+
+	/** Collects the settings for an Options object.  Every setting has a default, so only those that
+	 * differ need be given.
+	 */
+	public static class Builder {
+		char separator = CSVParser.DEFAULT_SEPARATOR;
+		char quote = CSVParser.DEFAULT_QUOTE_CHARACTER;
+		char escape = CSVParser.DEFAULT_ESCAPE_CHARACTER;
+		boolean header = true;
+		String encoding = "";
+		// Although the actual maximum length of a text index is 767, we limit ourselves to
+		// text fields that can fit in a VARCHAR(255)
+		int maxIndexLength = (int)Csv2Mysql.textMax[0];
+		boolean leadingZeroText = false;
+		boolean keys = false;
+		boolean floatKeys = false;
+		int maxKeyValues = 1000000;
+		long keyBudget = Long.MAX_VALUE;
+		boolean blanksAreNull = true;
+		boolean histograms = false;
+		int buckets = Histogram.DEFAULT_BUCKETS;
+		int enumValues = 0;
+		int enumBytes = 4096;
+
+		Builder() {
+		}
+
+		/** The field separator (-c) [default ','] */
+		public Builder separator(char c) {
+			separator = c;
+			return this;
+		}
+
+		/** The quote character (-q) [default '"'] */
+		public Builder quote(char c) {
+			quote = c;
+			return this;
+		}
+
+		/** The escape character (-e) [default '\'] */
+		public Builder escape(char c) {
+			escape = c;
+			return this;
+		}
+
+		/** Whether the first line may hold the column names (false is -g) [default true] */
+		public Builder header(boolean b) {
+			header = b;
+			return this;
+		}
+
+		/** Text is in UTF8, with up to 3 bytes per character (-u) */
+		public Builder utf8() {
+			encoding = "UTF8";
+			maxIndexLength = (int)Csv2Mysql.textMaxU[0];
+			return this;
+		}
+
+		/** Text is in UTF8MB4, with up to 4 bytes per character (--utf8mb4) */
+		public Builder utf8mb4() {
+			encoding = "UTF8MB4";
+			return this;
+		}
+
+		/** Whether integers whose first digit is 0 are taken to be strings (-z) [default false] */
+		public Builder leadingZeroText(boolean b) {
+			leadingZeroText = b;
+			return this;
+		}
+
+		/** Whether to look for columns that can be UNIQUE KEYs (-k) [default false] */
+		public Builder uniqueKeys(boolean b) {
+			keys = b;
+			return this;
+		}
+
+		/** Whether UNIQUE KEYs may also be on FLOAT or DOUBLE columns (-f) [default false] */
+		public Builder floatKeys(boolean b) {
+			floatKeys = b;
+			return this;
+		}
+
+		/** The maximum number of distinct strings kept per column in looking for UNIQUE KEYs (-m) [default 1000000] */
+		public Builder maxKeyValues(int n) {
+			maxKeyValues = n;
+			return this;
+		}
+
+		/** The maximum number of distinct strings kept at a time, over all columns and all the inferences
+		 * of one SchemaInferrer, in looking for UNIQUE KEYs (--key-budget) [default unlimited] */
+		public Builder keyBudget(long n) {
+			keyBudget = Math.max(1, n);
+			return this;
+		}
+
+		/** Whether empty values are NULL (false is -b) [default true] */
+		public Builder blanksAreNull(boolean b) {
+			blanksAreNull = b;
+			return this;
+		}
+
+		/** Whether to gather the statistics for histograms (--histograms) [default false] */
+		public Builder histograms(boolean b) {
+			histograms = b;
+			return this;
+		}
+
+		/** The number of histogram buckets (--buckets) [default Histogram.DEFAULT_BUCKETS] */
+		public Builder buckets(int n) {
+			buckets = Math.max(1, Math.min(Histogram.MAX_BUCKETS, n));
+			return this;
+		}
+
+		/** The maximum number of distinct values of a text column declared as ENUM (--enum) [default 0, no ENUMs] */
+		public Builder enumValues(int n) {
+			enumValues = Math.max(0, Math.min(Csv2Mysql.maxEnumValues, n));
+			return this;
+		}
+
+		/** The maximum total bytes of the distinct values of an ENUM (--enum-bytes) [default 4096] */
+		public Builder enumBytes(int n) {
+			enumBytes = Math.max(1, n);
+			return this;
+		}
+
+		/** @return the Options with these settings */
+		public Options build() {
+			return new Options(this);
+		}
+	}
+}
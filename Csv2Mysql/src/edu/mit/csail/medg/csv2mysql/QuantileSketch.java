@@ -0,0 +1,143 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** A QuantileSketch summarizes the distribution of a stream of numeric values in bounded memory,
+ * so that an equi-height histogram can be built after a single pass over the data.
+ *
+ * The sketch is a simple compactor hierarchy (in the style of the KLL sketch). Values are added
+ * to level 0, where each retained item stands for one value.  When a level fills up, it is sorted
+ * and every other item (starting at a randomly chosen offset) is promoted to the next level, where
+ * each item stands for twice as many values; the rest are discarded.  If a level holds an odd number
+ * of items, the largest one stays behind, so the total weight of the retained items always equals
+ * the number of values added.  Memory is therefore proportional to the level capacity times the
+ * logarithm of the number of values, and the rank error of any value is a small fraction of the total.
+ *
+ * Dates, times and datetimes are added as seconds (see {@link Histogram#temporalKey(String)}), so one
+ * sketch serves for all numeric and temporal columns. The exact minimum and maximum are tracked
+ * separately, because the compaction may discard them.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class QuantileSketch {
+	/** Default number of items retained at each level */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	final int capacity;
+	double[][] levels = new double[1][];
+	int[] sizes = new int[1];
+	long n = 0;
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+	// A fixed seed makes the output of repeated runs over the same data identical.
+	private final Random rnd = new Random(0x5eed);
+
+	/** Creates a new empty QuantileSketch with the default capacity per level
+	 *
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** Creates a new empty QuantileSketch
+	 * @param capacity the number of items retained at each level; larger values give more accurate quantiles
+	 */
+	public QuantileSketch(int capacity) {
+		this.capacity = Math.max(capacity, 8);
+		levels[0] = new double[this.capacity];
+	}
+
+	/** Adds a value to the sketch.
+	 * @param val The value to add
+	 */
+	public void add(double val) {
+		n++;
+		if (val < min) min = val;
+		if (val > max) max = val;
+		levels[0][sizes[0]++] = val;
+		if (sizes[0] == capacity) compact(0);
+	}
+
+	/** Halves the number of items at level h by promoting every other one to level h+1.
+	 * @param h the level to compact
+	 */
+	private void compact(int h) {
+		if (h + 1 == levels.length) {
+			levels = Arrays.copyOf(levels, h + 2);
+			sizes = Arrays.copyOf(sizes, h + 2);
+			levels[h + 1] = new double[capacity];
+		}
+		double[] lvl = levels[h];
+		int size = sizes[h];
+		// Make sure the next level can absorb the promoted items.
+		if (sizes[h + 1] + size / 2 >= capacity) compact(h + 1);
+		Arrays.sort(lvl, 0, size);
+		// An odd item out stays at this level, keeping total weight equal to n.
+		int even = size & ~1;
+		double[] up = levels[h + 1];
+		for (int i = rnd.nextInt(2); i < even; i += 2) {
+			up[sizes[h + 1]++] = lvl[i];
+		}
+		if (even < size) {
+			lvl[0] = lvl[even];
+			sizes[h] = 1;
+		}
+		else sizes[h] = 0;
+	}
+
+	/** @return the number of values added to the sketch */
+	public long count() {
+		return n;
+	}
+
+	/** @return the smallest value added, or +Infinity if none */
+	public double min() {
+		return min;
+	}
+
+	/** @return the largest value added, or -Infinity if none */
+	public double max() {
+		return max;
+	}
+
+	/** Fills the given arrays with the retained items in ascending order, each paired with its weight,
+	 * i.e., the number of added values it stands for.  The weights sum to {@link #count()}.
+	 * @param vals receives the sorted values; must have room for {@link #retained()} items
+	 * @param wts receives the corresponding weights; must have room for {@link #retained()} items
+	 * @return the number of items stored into vals and wts
+	 */
+	public int sortedWeighted(double[] vals, long[] wts) {
+		int total = retained();
+		double[] v = new double[total];
+		int[] levelOf = new int[total];
+		Integer[] order = new Integer[total];
+		int k = 0;
+		for (int h = 0; h < levels.length; h++) {
+			for (int i = 0; i < sizes[h]; i++) {
+				v[k] = levels[h][i];
+				levelOf[k] = h;
+				order[k] = k;
+				k++;
+			}
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(v[a], v[b]));
+		for (int i = 0; i < total; i++) {
+			vals[i] = v[order[i]];
+			wts[i] = 1L << levelOf[order[i]];
+		}
+		return total;
+	}
+
+	/** @return the number of items currently retained, a measure of the sketch's memory use */
+	public int retained() {
+		int total = 0;
+		for (int s: sizes) total += s;
+		return total;
+	}
+
+	public String toString() {
+		return "QuantileSketch[n=" + n + ", retained=" + retained() + ", levels=" + levels.length + "]";
+	}
+}
@@ -148,6 +148,13 @@ public class RangeTree {
 		return total;
 	}
 	
+	/** Gives the number of disjoint ranges, which determines the memory used by the RangeTree.
+	 * @return the number of ranges
+	 */
+	public int nRanges() {
+		return t.size();
+	}
+	
 	public String toString() {
 		StringBuilder sb = new StringBuilder("[");
 		String sep = "";
@@ -0,0 +1,119 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JDK Flight Recorder events emitted by Csv2Mysql, so that a recording, e.g., one started with
+ * <tt>jcmd &lt;pid&gt; JFR.start</tt>, shows the progress of a scan alongside GC and other JVM events.
+ * Events are only created once Flight Recorder has been started, so that a run without it does not load
+ * and initialize the recorder's classes, which would add noticeably to the startup of a short run.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public final class ScanEvents {
+
+	private ScanEvents() {
+	}
+
+	/** @return true if Flight Recorder has been started, by -XX:StartFlightRecording, jcmd or the API */
+	static boolean recording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/** The scan of one file, from opening it to the end of its data */
+	@Name("edu.mit.csail.medg.csv2mysql.FileScan")
+	@Label("File Scan")
+	@Category("Csv2Mysql")
+	@StackTrace(false)
+	public static class FileScan extends Event {
+		@Label("File")
+		String file;
+
+		@Label("Bytes Read")
+		@DataAmount
+		long bytes;
+
+		@Label("Rows")
+		long rows;
+
+		@Label("Columns")
+		int columns;
+	}
+
+	/** The scan of a chunk of consecutive rows of a file */
+	@Name("edu.mit.csail.medg.csv2mysql.ScanChunk")
+	@Label("Scan Chunk")
+	@Category("Csv2Mysql")
+	@StackTrace(false)
+	public static class ScanChunk extends Event {
+		@Label("File")
+		String file;
+
+		@Label("First Row")
+		long firstRow;
+
+		@Label("Rows")
+		long rows;
+
+		@Label("Bytes Read")
+		@Description("Bytes of the file read during the chunk, as stored, i.e., compressed if gzip'd")
+		@DataAmount
+		long bytes;
+	}
+
+	/** A column's uniqueness tracker (for -k) is discarded because the column cannot be a UNIQUE KEY */
+	@Name("edu.mit.csail.medg.csv2mysql.TrackerEviction")
+	@Label("Uniqueness Tracker Eviction")
+	@Category("Csv2Mysql")
+	@StackTrace(false)
+	public static class TrackerEviction extends Event {
+		@Label("File")
+		String file;
+
+		@Label("Column")
+		String column;
+
+		@Label("Tracker")
+		@Description("strings (the HashSet of distinct values) or integers (the RangeTree)")
+		String tracker;
+
+		@Label("Reason")
+		String reason;
+
+		@Label("Row")
+		long row;
+
+		@Label("Size")
+		@Description("Distinct strings or integer ranges held when the tracker was discarded")
+		long size;
+	}
+
+	/** Emits a TrackerEviction event.
+	 * @param file the file
+	 * @param column the column name
+	 * @param tracker "strings" or "integers"
+	 * @param reason why the tracker was discarded
+	 * @param row the row at which it was discarded
+	 * @param size its size then
+	 */
+	static void evicted(String file, String column, String tracker, String reason, long row, long size) {
+		if (!recording()) return;
+		TrackerEviction e = new TrackerEviction();
+		if (e.shouldCommit()) {
+			e.file = file;
+			e.column = column;
+			e.tracker = tracker;
+			e.reason = reason;
+			e.row = row;
+			e.size = size;
+			e.commit();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Keeps track of the progress of a run of Csv2Mysql over its files, for the ScanMonitorMXBean and the
+ * progress reports of -p.  Each file being scanned has a {@link FileProgress}; when several files are
+ * scanned at once (--jobs), the MXBean's attributes are summed over all of them.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class ScanMonitor implements ScanMonitorMXBean {
+
+	/** The name under which the monitor is registered */
+	public static final String OBJECT_NAME = "edu.mit.csail.medg.csv2mysql:type=ScanMonitor";
+
+	final CopyOnWriteArrayList<FileProgress> active = new CopyOnWriteArrayList<FileProgress>();
+	final AtomicInteger filesDone = new AtomicInteger();
+	int filesTotal = 0;
+	// The total size of the files of the run, and of those already scanned
+	long runBytes = 0;
+	final AtomicLong doneBytes = new AtomicLong();
+	long runStartNanos = System.nanoTime();
+	// Time between progress reports
+	long reportNanos = 10000000000L;
+
+	/** Registers this monitor with the platform MBean server.
+	 * @throws JMException if it cannot be registered
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+
+	/** Notes the start of a run over a list of files.
+	 * @param files the files to be scanned
+	 */
+	void startRun(List<String> files) {
+		filesTotal = files.size();
+		runBytes = 0;
+		for (String f: files) runBytes += new File(f).length();
+		runStartNanos = System.nanoTime();
+	}
+
+	/** Notes the start of the scan of a file.
+	 * @param fp the file's progress
+	 */
+	void startFile(FileProgress fp) {
+		fp.monitor = this;
+		active.add(fp);
+	}
+
+	/** Notes the end of the scan of a file.
+	 * @param fp the file's progress
+	 */
+	void endFile(FileProgress fp) {
+		active.remove(fp);
+		doneBytes.addAndGet(fp.fileSize);
+		filesDone.incrementAndGet();
+	}
+
+	/** Prints a progress report on a file and the whole run, if it has been long enough since the file's
+	 * last one.  The position in a file is measured in bytes as stored, so it is accurate for gzip'd files
+	 * and files with multi-line records; throughput is also given for the decompressed data.
+	 * @param fp the file's progress
+	 * @param force whether to report regardless of the time since the last report
+	 */
+	void report(FileProgress fp, boolean force) {
+		long now = System.nanoTime();
+		if (!force && now - fp.lastReport < reportNanos) return;
+		fp.lastReport = now;
+		long done = fp.bytesRead();
+		double sec = fp.seconds();
+		StringBuilder sb = new StringBuilder("  ");
+		sb.append(fp.file).append(": ");
+		// The size of a stream, e.g., a pipe, is not known in advance
+		if (fp.fileSize > 0) sb.append(percent(done, fp.fileSize)).append(" of ").append(mb(fp.fileSize)).append(" MB, ");
+		else sb.append(mb(done)).append(" MB read, ");
+		sb.append(mb(done / sec)).append(" MB/s");
+		long u = fp.uncompressedBytes();
+		if (u >= 0) sb.append(" (").append(mb(u / sec)).append(" MB/s uncompressed)");
+		sb.append(", ").append(fp.rows).append(" rows");
+		if (!force) sb.append(", ETA ").append(hms(fp.etaSeconds()));
+		if (filesTotal > 1) {
+			long runDone = doneBytes.get();
+			for (FileProgress f: active) runDone += f.bytesRead();
+			double runSec = Math.max(1e-9, (now - runStartNanos) / 1e9);
+			sb.append("; all ").append(filesTotal).append(" files: ").append(percent(runDone, runBytes));
+			if (runDone > 0 && runDone < runBytes) sb.append(", ETA ").append(hms(Math.round((runBytes - runDone) * runSec / runDone)));
+		}
+		System.out.println(sb.toString());
+	}
+
+	private static String percent(long part, long whole) {
+		return String.format(Locale.ROOT, "%.1f%%", (whole > 0) ? 100.0 * Math.min(part, whole) / whole : 100.0);
+	}
+
+	private static String mb(double bytes) {
+		return String.format(Locale.ROOT, "%.1f", bytes / (1 << 20));
+	}
+
+	/** Formats a number of seconds as h:mm:ss, or "?" if unknown (negative) */
+	static String hms(long sec) {
+		if (sec < 0) return "?";
+		return String.format(Locale.ROOT, "%d:%02d:%02d", sec / 3600, (sec / 60) % 60, sec % 60);
+	}
+
+	@Override
+	public String getCurrentFile() {
+		StringBuilder sb = new StringBuilder();
+		for (FileProgress fp: active) sb.append((sb.length() > 0) ? ", " : "").append(fp.file);
+		return (sb.length() > 0) ? sb.toString() : null;
+	}
+
+	@Override
+	public int getFilesDone() {
+		return filesDone.get();
+	}
+
+	@Override
+	public int getFilesTotal() {
+		return filesTotal;
+	}
+
+	@Override
+	public long getBytesRead() {
+		long n = 0;
+		for (FileProgress fp: active) n += fp.bytesRead();
+		return n;
+	}
+
+	@Override
+	public long getFileSize() {
+		long n = 0;
+		for (FileProgress fp: active) n += fp.fileSize;
+		return n;
+	}
+
+	@Override
+	public long getRows() {
+		long n = 0;
+		for (FileProgress fp: active) n += fp.rows;
+		return n;
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		double n = 0;
+		for (FileProgress fp: active) n += fp.rowsPerSecond();
+		return n;
+	}
+
+	@Override
+	public double getBytesPerSecond() {
+		double n = 0;
+		for (FileProgress fp: active) n += fp.bytesPerSecond();
+		return n;
+	}
+
+	@Override
+	public long getEtaSeconds() {
+		long eta = -1;
+		for (FileProgress fp: active) eta = Math.max(eta, fp.etaSeconds());
+		return eta;
+	}
+
+	@Override
+	public int getColumns() {
+		int n = 0;
+		for (FileProgress fp: active) n += fp.columns();
+		return n;
+	}
+
+	@Override
+	public Map<String,Integer> getTypeCandidates() {
+		LinkedHashMap<String,Integer> ans = new LinkedHashMap<String,Integer>();
+		for (int k = 0; k < Metrics.classifiers.length; k++) {
+			int n = 0;
+			for (FileProgress fp: active) n += fp.typeCandidates(k);
+			ans.put(Metrics.classifiers[k], n);
+		}
+		return ans;
+	}
+
+	@Override
+	public int getUniqueKeyCandidates() {
+		int n = 0;
+		for (FileProgress fp: active) n += fp.uniqueKeyCandidates();
+		return n;
+	}
+}
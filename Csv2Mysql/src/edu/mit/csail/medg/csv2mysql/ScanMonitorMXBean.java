@@ -0,0 +1,51 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.util.Map;
+
+/** The management interface through which a running Csv2Mysql can be watched, e.g., in JConsole or
+ * Mission Control, when it is started with --jmx.  It is registered as
+ * <tt>edu.mit.csail.medg.csv2mysql:type=ScanMonitor</tt>.  All values describe the files currently
+ * being scanned, summed over them if there are several (--jobs), and are snapshots taken without
+ * synchronization, so they may be slightly stale.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public interface ScanMonitorMXBean {
+
+	/** @return the names of the files being scanned, or null if none */
+	String getCurrentFile();
+
+	/** @return the number of files scanned so far */
+	int getFilesDone();
+
+	/** @return the number of files to be scanned in this run */
+	int getFilesTotal();
+
+	/** @return the number of bytes of the current file read so far, as stored, i.e., compressed if gzip'd */
+	long getBytesRead();
+
+	/** @return the size of the current file */
+	long getFileSize();
+
+	/** @return the number of rows of the current file scanned so far */
+	long getRows();
+
+	/** @return the average number of rows scanned per second in the current file */
+	double getRowsPerSecond();
+
+	/** @return the average number of bytes read per second in the current file */
+	double getBytesPerSecond();
+
+	/** @return the estimated number of seconds until the current file is scanned, or -1 if unknown */
+	long getEtaSeconds();
+
+	/** @return the number of columns of the current file */
+	int getColumns();
+
+	/** @return for each data type, the number of columns that may still be of that type */
+	Map<String,Integer> getTypeCandidates();
+
+	/** @return the number of columns still being tracked as possible UNIQUE KEYs, if -k */
+	int getUniqueKeyCandidates();
+}
@@ -0,0 +1,619 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+
+/** Infers the MySQL table that best holds the contents of a csv file.  This is what Csv2Mysql does for each
+ * file it is given, made available to other programs: an inferrer is created once with its {@link Options}
+ * and may then be used for any number of files, from any number of threads at once, as it keeps no
+ * state of its own between inferences except the count of values held against the key budget, e.g.,
+ * <pre>SchemaInferrer inf = new SchemaInferrer(Options.builder().uniqueKeys(true).build());
+ * TableProfile p = inf.infer(Paths.get("people.csv"));
+ * String sql = new SqlRenderer(inf.getOptions()).createTable(p);</pre>
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class SchemaInferrer {
+	final Options options;
+	// The number of distinct strings held by the UNIQUE KEY trackers of all the inferences in progress
+	final AtomicLong keyValues = new AtomicLong();
+
+	// How often a ScanChunk event is recorded, in rows
+	static final int reportEvery = 100000;
+
+	/** Creates a SchemaInferrer
+	 * @param options the settings for reading the files and choosing the types
+	 */
+	public SchemaInferrer(Options options) {
+		this.options = options;
+	}
+
+	/** @return the inferrer's Options */
+	public Options getOptions() {
+		return options;
+	}
+
+	/** Infers the table for a file, which is read as gzip'd if its name ends in .gz or .z.  The table is
+	 * named for the file, without its extension.
+	 * @param file the file
+	 * @return the profile of the table
+	 * @throws IOException if the file cannot be read or holds no data
+	 */
+	public TableProfile infer(Path file) throws IOException {
+		String fileName = file.getFileName().toString();
+		String tableName = fileName;
+		int dot = tableName.lastIndexOf(".");
+		if (dot > 1) tableName = tableName.substring(0, dot);
+		try (InputStream in = Files.newInputStream(file)) {
+			return infer(tableName, Csv2Mysql.isGzipFileName(fileName) ? new GZIPInputStream(in, 1 << 16) : in);
+		}
+	}
+
+	/** Infers the table for csv data in the Options' character set.  The stream is not closed.
+	 * @param tableName the name of the table
+	 * @param in the data
+	 * @return the profile of the table
+	 * @throws IOException if the data cannot be read or there are none
+	 */
+	public TableProfile infer(String tableName, InputStream in) throws IOException {
+		return infer(tableName, new InputStreamReader(in, options.charset()));
+	}
+
+	/** Infers the table for csv data.  The reader is not closed.
+	 * @param tableName the name of the table
+	 * @param in the data
+	 * @return the profile of the table
+	 * @throws IOException if the data cannot be read or there are none
+	 */
+	public TableProfile infer(String tableName, Reader in) throws IOException {
+		return infer(tableName, tableName, reader(in), null, null, null, null);
+	}
+
+	/** Makes a CSVReader with the Options' separator, quote and escape characters.  The data are read to
+	 * their end, so the reader need not check before each line whether it has been closed.
+	 * @param in the data
+	 * @return the CSVReader
+	 */
+	CSVReader reader(Reader in) {
+		return new CSVReaderBuilder(new BufferedReader(in, 1 << 16))
+				.withCSVParser(new CSVParser(options.separator, options.quote, options.escape))
+				.withVerifyReader(false)
+				.build();
+	}
+
+	/** Infers the table for csv data, optionally following the progress of the scan.
+	 * @param tableName the name of the table
+	 * @param source where the data come from, to name in messages and events
+	 * @param r the reader
+	 * @param m if not null, the Metrics in which to record where the time goes
+	 * @param fp if not null, the progress of the file, updated as rows are read
+	 * @param say if not null, is given messages about the progress of the inference, e.g., columns
+	 * 	that are found not to be unique
+	 * @param warn if not null, is given the warnings about the data as they are found, which are also
+	 * 	kept in the profile
+	 * @return the profile of the table
+	 * @throws IOException if the data cannot be read or there are none
+	 */
+	TableProfile infer(String tableName, String source, CSVReader r, Metrics m, FileProgress fp,
+			Consumer<String> say, Consumer<String> warn) throws IOException {
+		TableProfile p = new TableProfile(tableName, source);
+		int nCols = -1;
+		String[] line;
+		boolean treatLineAsNames = options.header; // Only applies to first line
+		boolean treatedLineAsNames = false;	// Whether the first line really was names, so we skip on import.
+		boolean keys = options.keys;
+		boolean histograms = options.histograms;
+		boolean blanksAreNull = options.blanksAreNull;
+		Pattern intPat = options.intPattern;
+		String utf = options.encoding;
+		/*
+		 * A column in SQL can always be a string, in which case we just compute its max length, to know what kind of
+		 * string data type to make it.  However, if every element of a column is of the correct format to be represented
+		 * as an integer, float or double, date, time or datetime, then we should choose that representation.
+		 * Therefore, we iterate through the entries in the csv file and for each one determine whether each of its column
+		 * values excludes any of these possibilities. We also determine whether any of the entries are empty (i.e.,
+		 * representing NULL), to keep track of whether to permit null values in that column.
+		 * For numbers with a fractional part, we keep track of the most digits seen before and after the decimal point
+		 * and the most significant digits, so we can choose an exact DECIMAL(p,s) when it takes no more space than the
+		 * floating point type, and FLOAT only if no value has more significant digits than a FLOAT keeps.
+		 * We ignore the possibility of bit-string, etc., values. Integers are represented by BOOLEAN
+		 * (if all values are 0 or 1), TINYINT, SMALLINT, MEDIUMINT, INT, BIGINT, DECIMAL, depending on their range and
+		 * are declared UNSIGNED if all values are non-negative. BOOLEANs can't be UNSIGNED, though in current MySQL,
+		 * they are actually treated identically to TINYINT.
+		 * We could consider adding another parameter to suppress use of UNSIGNED integer fields. These do save
+		 * space when all integers in a field are non-negative because they effectively double the range of
+		 * representable integers, so they can use a smaller data type.  However, reading these may be awkward;
+		 * for example, R issues warnings about converting unsigned to signed integers.  This option is not
+		 * currently implemented.
+		 *
+		 * Dates are expected to be in the common SQL format YYY-MM-DD, times in HH:MI:SS, and datetime as a date
+		 * followed by a time, separated by either a space or the letter T. We also accept datetime in the standard Oracle
+		 * format (e.g., "09-sep-2012 15:00:00 US/Eastern"), but we ignore the timezone part; importing does, however,
+		 * generate warnings about "Truncated incorrect datetime value".
+		 *
+		 * Text fields can be VARCHAR(255), TINYTEXT, TEXT, MEDIUMTEXT, or LONGTEXT. These are all variable-length
+		 * fields, and we trim space characters off both ends of a value before calculating the needed length of a field,
+		 * and also when data are imported.  The number of characters that can be stored in such a field depend on the
+		 * encoding.  For UTF8, it is shorter by ~3x than for single-byte encodings.  In an earlier implementation, we
+		 * also supported short fixed-width CHAR(...) fields if every input in a text field was of the same length. We
+		 * eliminated this because some input files include spaces before/after a value, and it's not helpful to keep
+		 * these.
+		 *
+		 * For each column, we keep track of whether we have evidence that its values can be of each possible type.
+		 * Values are 0 = unknown, 1 = possible, -1 = impossible (some value cannot be that type)
+		 * We test a new value unless the column's interpretation is already impossible. If it matches, we set 1,
+		 * but if not, -1.
+		 *
+		 * If unique keys are to be created, we keep track of whether all the values in a column are unique.
+		 * In MySQL, multiple NULL values may appear in a column that is the basis of a unique key, but
+		 * this is said not to be the case in some SQL implementations, such as MS SQL Server. It is, however, the
+		 * standard.  For each column, we maintain a HashSet of all the non-NULL values, but shortcut the process as
+		 * soon as we find a duplicate value.  If all values are unique, we do add a UNIQUE KEY constraint in the
+		 * generated table definition.
+		 * The problem with this method is that at the time we check for uniqueness, we do not yet know the eventual
+		 * data type of the column, so the uniqueness is in terms of string representation.  However, if the column
+		 * turns out to be INT, say, then multiple distinct strings may represent the same value, e.g., "01" and "1".
+		 * Therefore, we also maintain a RangeTree to keep track of distinct values of integer data, which is also
+		 * much more efficient.
+		 * The HashSets of all the files being scanned share a budget of distinct values (the key budget), so
+		 * that several large files scanned at once do not exhaust the heap; a column whose set would exceed
+		 * it is no longer considered for a string UNIQUE KEY.
+		 *
+		 */
+		int[] canBeInt = null, canBeFloat = null, canBeDouble = null, canBeDate = null, canBeTime = null,
+				canBeDateTime = null, canBeOracleDateTime = null, canBeOracleDate = null;
+		boolean[] nullable = null;
+		BigInteger[] minInts = null, maxInts = null;
+		long[] colLengths = null;
+		long[] colBytes = null;
+		int[] intDigits = null, fracDigits = null, sigDigits = null;
+		String[] cols = null;
+		ArrayList<HashSet<String>> vals = null;
+		ArrayList<RangeTree> ivals = null;
+		long[] nNulls = null;
+		QuantileSketch[] qSketch = null;
+		FrequencySketch[] fSketch = null;
+		EnumDictionary[] enums = null;
+		BigInteger iv = null;
+		boolean triedBigInt = false;
+
+		int lineNo = 0;
+		boolean truncated = false;	// Whether we stopped at a line of the wrong length
+		// Events are only created while Flight Recorder is running, so that a short run need not load it
+		ScanEvents.FileScan scanEvent = ScanEvents.recording() ? new ScanEvents.FileScan() : null;
+		if (scanEvent != null) scanEvent.begin();
+		ScanEvents.ScanChunk chunkEvent = ScanEvents.recording() ? new ScanEvents.ScanChunk() : null;
+		if (chunkEvent != null) chunkEvent.begin();
+		long chunkBytes = 0;
+		/* We keep track for each column of the following:
+		 * Are all elements parsable as integers? Min and Max values
+		 * As floats? Min and Max values
+		 * As dates, times, or timestamps? (only in formats that can be input to MySql)
+		 * Only as character strings? Max length.
+		 */
+		try {
+			while ((line = readNext(r, m)) != null) {
+				lineNo++;
+				if (fp != null) fp.update(lineNo);
+				if ((lineNo % reportEvery) == 0) {
+					long bytes = (fp != null) ? fp.bytesRead() : 0;
+					if (chunkEvent != null && chunkEvent.shouldCommit()) {
+						chunkEvent.file = source;
+						chunkEvent.firstRow = lineNo - reportEvery + 1;
+						chunkEvent.rows = reportEvery;
+						chunkEvent.bytes = bytes - chunkBytes;
+						chunkEvent.commit();
+					}
+					chunkBytes = bytes;
+					chunkEvent = ScanEvents.recording() ? new ScanEvents.ScanChunk() : null;
+					if (chunkEvent != null) chunkEvent.begin();
+				}
+				if (nCols < 0) {
+					nCols = line.length;
+					// Initialize all the tracking vars now that we know how many columns
+					cols = new String[nCols];
+					canBeInt = new int[nCols];
+					canBeFloat = new int[nCols];
+					canBeDouble = new int[nCols];
+					canBeDate = new int[nCols];
+					canBeTime = new int[nCols];
+					canBeDateTime = new int[nCols];
+					canBeOracleDateTime = new int[nCols];
+					canBeOracleDate = new int[nCols];
+					nullable = new boolean[nCols];
+					minInts = new BigInteger[nCols];
+					maxInts = new BigInteger[nCols];
+					colLengths = new long[nCols];
+					colBytes = new long[nCols];
+					intDigits = new int[nCols];
+					fracDigits = new int[nCols];
+					sigDigits = new int[nCols];
+					vals = new ArrayList<HashSet<String>>(nCols);
+					ivals = new ArrayList<RangeTree>(nCols);
+					nNulls = new long[nCols];
+					if (histograms) {
+						qSketch = new QuantileSketch[nCols];
+						fSketch = new FrequencySketch[nCols];
+					}
+					if (options.enumValues > 0) enums = new EnumDictionary[nCols];
+					if (m != null) m.setColumns(nCols);
+					if (fp != null) fp.setColumns(new int[][] {canBeInt, canBeFloat, canBeDouble, canBeDate, canBeTime,
+						canBeDateTime, canBeOracleDate, canBeOracleDateTime}, vals, ivals);
+					for (int i = 0; i < nCols; i++) {
+						cols[i] = "V" + i;
+						canBeInt[i] = 0;
+						canBeDouble[i] = 0;
+						canBeDate[i] = 0;
+						canBeTime[i] = 0;
+						canBeDateTime[i] = 0;
+						canBeOracleDateTime[i] = 0;
+						canBeOracleDate[i] = 0;
+						nullable[i] = false;
+						minInts[i] = new BigInteger("99999999999999999999999999999999999999999999999999999999999999999");
+						maxInts[i] = new BigInteger("-99999999999999999999999999999999999999999999999999999999999999999");
+						colLengths[i] = 0L;
+						if (keys) {
+							vals.add(new HashSet<String>());
+							ivals.add(new RangeTree());
+						}
+						if (histograms) {
+							qSketch[i] = new QuantileSketch();
+							fSketch[i] = new FrequencySketch(options.buckets);
+						}
+						if (enums != null) enums[i] = new EnumDictionary(options.enumValues, options.enumBytes);
+					}
+				}
+				else if (nCols != line.length) {
+					warn(p, warn, wrongLength(line, lineNo, nCols));
+					truncated = true;
+					break;
+				}
+				if (!treatLineAsNames || !goodNames(p, warn, line)) {
+					for (int c = 0; c < line.length; c++) {
+						String v = line[c].trim();
+						if (v.equals("\\N") || (blanksAreNull && v.equals(""))) {
+							nullable[c] = true;
+							nNulls[c]++;
+						}
+						else {
+							long t0 = (m != null) ? System.nanoTime() : 0;
+							if (keys) {
+								RangeTree t = ivals.get(c);
+								if ((t != null) && (canBeInt[c] >= 0)) {
+									BigInteger vi = Csv2Mysql.interpretAsBigInt(v, intPat);
+									if (!t.add(vi)) {
+										// Either non-integer or duplicate
+										ivals.set(c,  null);
+										ScanEvents.evicted(source, cols[c], "integers", "duplicate", lineNo, t.nRanges());
+										if (say != null && vi !=null) {
+											say.accept("Col " + c + " (" + cols[c] + ") is not unique as integers.");
+										}
+									}
+								}
+								HashSet<String> s = vals.get(c);
+								if (s != null) {
+									if (v.length() > options.maxIndexLength) {
+										vals.set(c, null);
+										keyValues.addAndGet(-s.size());
+										ScanEvents.evicted(source, cols[c], "strings", "too long", lineNo, s.size());
+										if (say != null) {
+											say.accept("Col " + c + " (" + cols[c] + ") is too long for unique key (" + v.length() + ").");
+										}
+									}
+									else if (!s.contains(v)) {
+										s.add(v);
+										boolean overBudget = keyValues.incrementAndGet() > options.keyBudget;
+										if (s.size() > options.maxKeyValues || overBudget) {
+											vals.set(c,  null);
+											keyValues.addAndGet(-s.size());
+											ScanEvents.evicted(source, cols[c], "strings", overBudget ? "memory budget" : "too many values",
+													lineNo, s.size());
+											if (say != null) {
+												say.accept("Col " + c + " (" + cols[c] + ") has > " + (overBudget
+														? "its share of the key budget of " + options.keyBudget + " distinct values."
+														: options.maxKeyValues + " distinct string values."));
+												say.accept((ivals.get(c) == null || canBeInt[c] < 0)
+														? "  ... it will not be considered as being a UNIQUE KEY."
+														: "  ... it will only be considered as a possible integer UNIQUE KEY.");
+											}
+										}
+									}
+									else {
+										vals.set(c, null);
+										keyValues.addAndGet(-s.size());
+										ScanEvents.evicted(source, cols[c], "strings", "duplicate", lineNo, s.size());
+										if (say != null) {
+											say.accept("Col " + c + " (" + cols[c] + ") is not unique.");
+										}
+									}
+								}
+							}
+							long t1 = (m != null) ? System.nanoTime() : 0;
+							triedBigInt = false; // Don't convert to BigInteger twice (for INT or FLOAT/DOUBLE)
+							if (canBeDate[c] >= 0) canBeDate[c] = Csv2Mysql.isDate(v) ? 1 : -1;
+							if (canBeOracleDate[c] >= 0) canBeOracleDate[c] = Csv2Mysql.isOracleDate(v) ? 1 : -1;
+							if (canBeTime[c] >= 0) canBeTime[c] = Csv2Mysql.isTime(v) ? 1 : -1;
+							if (canBeDateTime[c] >= 0) canBeDateTime[c] = Csv2Mysql.isDateTime(v) ? 1 : -1;
+							if (canBeOracleDateTime[c] >= 0) canBeOracleDateTime[c] = Csv2Mysql.isOracleDateTime(v) ? 1 : -1;
+							if (canBeInt[c] >= 0) {
+								iv = Csv2Mysql.interpretAsBigInt(v, intPat);
+								triedBigInt = true;
+								if (iv == null) canBeInt[c] = -1;
+								else {
+									canBeInt[c] = 1;
+									if (iv.compareTo(minInts[c]) < 0) minInts[c] = iv;
+									if (iv.compareTo(maxInts[c]) > 0) maxInts[c] = iv;
+								}
+							}
+							if (canBeDouble[c] >= 0 || canBeFloat[c] >= 0) {
+								// int can be float or double
+								iv = (triedBigInt) ? iv : Csv2Mysql.interpretAsBigInt(v, intPat);
+								int floatType = Csv2Mysql.floatKind(v);
+								if (canBeFloat[c] >= 0)
+									canBeFloat[c] = (floatType == Csv2Mysql.FLOAT || iv != null) ? 1 : -1;
+								if (canBeDouble[c] >= 0)
+									canBeDouble[c] = (floatType == Csv2Mysql.FLOAT || floatType == Csv2Mysql.DOUBLE || iv != null) ? 1 : -1;
+								if (canBeDouble[c] > 0) {
+									long shape = Csv2Mysql.decimalShape(v);
+									intDigits[c] = Math.max(intDigits[c], Csv2Mysql.shapeInt(shape));
+									fracDigits[c] = Math.max(fracDigits[c], Csv2Mysql.shapeFrac(shape));
+									sigDigits[c] = Math.max(sigDigits[c], Csv2Mysql.shapeSig(shape));
+								}
+							}
+							if (utf.equals("")) {
+								if (v.length() > colLengths[c]) colLengths[c] = colBytes[c] = v.length();
+							}
+							else {
+								// A char takes at most 3 bytes in UTF-8 (a surrogate pair 4), and there are no more
+								// characters than chars, so the exact counts are needed only if either could grow.
+								if (v.length() > colLengths[c])
+									colLengths[c] = Math.max(colLengths[c], v.codePointCount(0, v.length()));
+								if (3L * v.length() > colBytes[c])
+									colBytes[c] = Math.max(colBytes[c], Csv2Mysql.utf8Length(v));
+							}
+							long t2 = (m != null) ? System.nanoTime() : 0;
+							if (histograms) {
+								// Numeric and temporal values go into the quantile sketch, as long as
+								// the column can still be of such a type; all go into the frequency sketch.
+								if (qSketch[c] != null) {
+									double key = Double.NaN;
+									if (canBeDouble[c] > 0) key = Double.parseDouble(v);
+									else if (canBeDate[c] > 0 || canBeOracleDate[c] > 0 || canBeTime[c] > 0
+											|| canBeDateTime[c] > 0 || canBeOracleDateTime[c] > 0)
+										key = Histogram.temporalKey(v);
+									if (Double.isNaN(key)) qSketch[c] = null;
+									else qSketch[c].add(key);
+								}
+								fSketch[c].add(v);
+							}
+							// A dictionary that grows too large is dropped, so the column cannot be an ENUM
+							if (enums != null && enums[c] != null && !enums[c].add(v)) enums[c] = null;
+							if (m != null) {
+								long t3 = System.nanoTime();
+								m.uniqueNanos[c] += t1 - t0;
+								m.classifyNanos[c] += t2 - t1;
+								m.statsNanos[c] += t3 - t2;
+								m.countTests(c, canBeInt[c], canBeFloat[c], canBeDouble[c], canBeDate[c], canBeTime[c],
+										canBeDateTime[c], canBeOracleDate[c], canBeOracleDateTime[c]);
+								if (keys) m.noteTrackers(c, (vals.get(c) == null) ? 0 : vals.get(c).size(),
+										(ivals.get(c) == null) ? 0 : ivals.get(c).nRanges());
+							}
+						}
+					}
+				} else {
+					for (int c = 0; c < line.length; c++) {
+						cols[c] = line[c].trim();
+					}
+					lineNo--;	// Don't count header line
+					treatedLineAsNames = true;
+				}	// end of iteration over elements of an entry
+				treatLineAsNames = false;	// Possible only for first line
+			}	// end of iteration over entries in csv
+		} finally {
+			// The remaining sets no longer grow, so their values are returned to the budget for other files,
+			// also if the scan fails
+			if (keys && vals != null) for (HashSet<String> s: vals) if (s != null) keyValues.addAndGet(-s.size());
+			// Nor is a file that fails still in progress
+			if (fp != null) fp.done();
+		}
+		long rows = truncated ? lineNo - 1 : lineNo;	// The bad line is not part of the table
+		if (scanEvent != null && scanEvent.shouldCommit()) {
+			scanEvent.file = source;
+			scanEvent.bytes = (fp != null) ? fp.bytesRead() : 0;
+			scanEvent.rows = rows;
+			scanEvent.columns = Math.max(0, nCols);
+			scanEvent.commit();
+		}
+		if (nCols < 0) throw new IOException("No data in " + source);
+		p.rows = rows;
+		p.headerRow = treatedLineAsNames;
+		p.truncated = truncated;
+
+		// Now we choose the type of each column
+		String[] colTypes = new String[nCols];
+		boolean[] isText = new boolean[nCols];
+		String[][] enumVals = new String[nCols][];
+		for (int c = 0; c < nCols; c++) {
+			String type = null;
+			if (canBeInt[c] > 0) {
+				if (keys && vals.get(c) != null && !Csv2Mysql.areUniqueIntegers(vals.get(c))) {
+					vals.set(c, null);
+					if (say != null) say.accept("Col " + c + " (" + cols[c] + ") has unique strings but not integers.");
+				}
+				BigInteger[] numberTops = Csv2Mysql.numberMax;
+				if (minInts[c].compareTo(Csv2Mysql.bigZero) >= 0) numberTops = Csv2Mysql.numberMaxU;
+				for (int i = 0; i < numberTops.length; i++) {
+					if (maxInts[c].compareTo(numberTops[i]) <= 0) {
+						type = Csv2Mysql.numberTypes[i];
+						if (Csv2Mysql.numberTypes[i] == "DECIMAL") type = Csv2Mysql.decimalType(intDigits[c], 0);
+						else if (numberTops == Csv2Mysql.numberMaxU && Csv2Mysql.numberTypes[i] != "BOOLEAN") type += " UNSIGNED";
+						break;
+					}
+				}
+				if (type == null) {
+					// Too many digits even for a DECIMAL, so only text holds them exactly; sized below
+					if (keys) ivals.set(c, null);
+					isText[c] = true;
+				}
+			}
+			else if (canBeDouble[c] > 0) {
+				// FLOAT keeps about 7 significant digits; use it only if that loses none that were written
+				String approx = (canBeFloat[c] > 0 && sigDigits[c] <= Csv2Mysql.floatDigits) ? "FLOAT" : "DOUBLE";
+				if (keys) ivals.set(c, null);
+				if (keys && vals.get(c) != null) {
+					if (!options.floatKeys) vals.set(c, null);
+					else if (!Csv2Mysql.areUniqueDoubles(vals.get(c))) {
+						vals.set(c, null);
+						if (say != null) say.accept("Col " + c + " (" + cols[c] + ") has unique strings but not "
+								+ (approx.equals("FLOAT") ? "Floats." : "Doubles."));
+					}
+				}
+				// An exact DECIMAL is preferred unless it would take more space
+				type = Csv2Mysql.decimalType(intDigits[c], fracDigits[c]);
+				if (type == null || Csv2Mysql.rowBytes(type, 1) > Csv2Mysql.rowBytes(approx, 1)) type = approx;
+			}
+			else if (canBeDateTime[c] > 0 || canBeOracleDateTime[c] > 0) {
+				if (keys) ivals.set(c, null);
+				type = "DATETIME";
+			}
+			else if (canBeDate[c] > 0 || canBeOracleDate[c] > 0) {
+				if (keys) ivals.set(c, null);
+				type = "DATE";
+			}
+			else if (canBeTime[c] > 0) {
+				if (keys) ivals.set(c, null);
+				type = "TIME";
+			}
+			else if (enums != null && enums[c] != null && Csv2Mysql.isEnum(enums[c])) {
+				// Repeated values, so never a unique key
+				if (keys) ivals.set(c, null);
+				enumVals[c] = enums[c].byFrequency();
+				type = Csv2Mysql.enumType(enumVals[c]);
+			}
+			else {	// Chars; sized below, once we know the space taken by the other columns
+				if (keys) ivals.set(c, null);
+				isText[c] = true;
+			}
+			colTypes[c] = type;
+		}
+		Csv2Mysql.sizeTextColumns(colTypes, isText, colLengths, colBytes, nullable, utf);
+		if (m != null) m.endScan(rows, cols, colTypes, nNulls);
+		p.columns = new TableProfile.Column[nCols];
+		for (int c = 0; c < nCols; c++) {
+			TableProfile.Column col = p.columns[c] = new TableProfile.Column(cols[c]);
+			col.type = colTypes[c];
+			col.nullable = nullable[c];
+			col.nulls = nNulls[c];
+			if (canBeInt[c] > 0) {
+				col.minInt = minInts[c];
+				col.maxInt = maxInts[c];
+			}
+			col.maxLength = colLengths[c];
+			col.maxBytes = colBytes[c];
+			col.text = isText[c];
+			col.oracleDate = canBeOracleDate[c] > 0;
+			col.oracleDateTime = canBeOracleDateTime[c] > 0;
+			if (enumVals[c] != null) {
+				col.enumValues = enumVals[c];
+				col.enumCounts = new long[enumVals[c].length];
+				for (int i = 0; i < enumVals[c].length; i++) col.enumCounts[i] = enums[c].count(enumVals[c][i]);
+			}
+			if (histograms) {
+				col.quantiles = qSketch[c];
+				col.frequencies = fSketch[c];
+			}
+			if (keys) {
+				if (isText[c] && vals.get(c) != null && !colTypes[c].startsWith("VARCHAR")) {
+					vals.set(c, null);
+					if (say != null) say.accept("Col " + c + " (" + cols[c] + ") is stored as " + colTypes[c]
+							+ " to fit the row size limit, so it cannot be a UNIQUE KEY.");
+				}
+				BigInteger nVals = BigInteger.ZERO;
+				if (ivals.get(c) != null) nVals = ivals.get(c).nInRange();
+				if (vals.get(c) != null) nVals = BigInteger.valueOf(vals.get(c).size());
+				if (nVals.compareTo(BigInteger.ZERO) > 0) col.uniqueValues = nVals;
+			}
+		}
+		return p;
+	}
+
+	/** Reads the next line of a csv file, timing it if there are Metrics.
+	 * @param r the reader
+	 * @param m the Metrics, or null
+	 * @return the fields of the line, or null at the end of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String[] readNext(CSVReader r, Metrics m) throws IOException {
+		if (m == null) return r.readNext();
+		long t0 = System.nanoTime();
+		String[] line = r.readNext();
+		m.readNanos += System.nanoTime() - t0;
+		return line;
+	}
+
+	private static void warn(TableProfile p, Consumer<String> warn, String msg) {
+		p.warnings.add(msg);
+		if (warn != null) warn.accept(msg);
+	}
+
+	/** Checks whether the first line of a file, which may hold the column names, does.
+		 This is a heuristic check to make sure that the first line of the .csv file, if
+		 it's said to contain the names of columns, has reasonable column names.
+		 It can only be heuristic, because MySQL allows a very broad range of column names
+		 as long as they are included in backquote characters; hence almost any first line could be
+		 interpreted that way.
+		 Our heuristic assumes that all column names will consist only of the characters [0-9a-zA-Z$_]
+		 and will not start with a digit.
+
+	 * @param p the profile, which keeps the warning if the names are not good
+	 * @param warn if not null, is also given the warning
+	 * @param line an array of purported names
+	 * @return true if each name is valid according to our heuristic.
+	 */
+	private static boolean goodNames(TableProfile p, Consumer<String> warn, String[] line) {
+		StringBuilder sb = null;
+		for (String name: line) {
+			String nameTrimmed = name.trim();
+			if (!goodNamePattern.matcher(nameTrimmed).matches()) {
+				if (sb == null) sb = new StringBuilder("1st line of file should list column names, but");
+				sb.append("\n \"" + nameTrimmed + "\" is not (heuristically) a good name.");
+			}
+		}
+		if (sb != null) warn(p, warn, sb.toString());
+		return sb == null;
+	}
+
+	private static final Pattern goodNamePattern = Pattern.compile("[a-zA-Z$_][0-9a-zA-Z$_]*");
+
+	/** Describes a line that has the wrong number of fields.
+	 * @param line the line
+	 * @param lineNo line number to report
+	 * @param nCols its actual number of columns
+	 * @return the warning
+	 */
+	private static String wrongLength(String[] line, int lineNo, int nCols) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Line " + lineNo + " has " + line.length + " elements instead of " + nCols + ":");
+		for (int i = 0; i < Math.min(maxElementsToPrint, line.length); i++) sb.append("\n  " + i + ": " + line[i]);
+		return sb.toString();
+	}
+
+	private final static int maxElementsToPrint = 5;
+}
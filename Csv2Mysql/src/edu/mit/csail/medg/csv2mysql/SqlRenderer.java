@@ -0,0 +1,162 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import com.opencsv.CSVParser;
+
+/** Writes the MySQL statements for a table whose contents have been profiled by a {@link SchemaInferrer}:
+ * the table definition, the LOAD DATA statement that fills it from its csv file, and the statements that
+ * set its column histograms.  The data themselves can be written as INSERT statements by an
+ * {@link InsertWriter}.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class SqlRenderer {
+	final Options options;
+
+	/** Creates a SqlRenderer
+	 * @param options the settings with which the tables were profiled, which also say how the csv files
+	 * 	are to be read by LOAD DATA and in which character set the tables are declared
+	 */
+	public SqlRenderer(Options options) {
+		this.options = options;
+	}
+
+	/** Forms the statements that define a table, replacing any table of the same name.  Comments give the
+	 * number of rows, the longest value of each text column, the counts of the members of each ENUM and the
+	 * number of distinct values of each UNIQUE KEY.
+	 * @param p the profile of the table
+	 * @return the DROP TABLE and CREATE TABLE statements
+	 */
+	public String createTable(TableProfile p) {
+		// Each line ends with a comma, an optional comment, and newline, except the first.
+		// We actually output these at the start of a new line, to avoid an extra comma at end.
+		StringBuilder sb = new StringBuilder();
+		sb.append("DROP TABLE IF EXISTS " + p.name + ";\n");
+		String sep = " (";
+		String comment = "\t-- rows=" + p.rows;
+		sb.append("CREATE TABLE " + p.name);
+		for (TableProfile.Column col: p.columns) {
+			sb.append(sep);
+			sb.append(comment);
+			sb.append("\n");
+			sep = ",";
+			comment = "";
+			if (col.text) {
+				comment = "\t-- max=" + col.maxLength;
+				if (col.maxBytes != col.maxLength) comment += " (" + col.maxBytes + " bytes)";
+			}
+			else if (col.enumValues != null) comment = "\t-- " + enumCounts(col.enumValues, col.enumCounts);
+			sb.append("   " + col.name + " " + col.type);
+			if (!col.nullable) sb.append(" NOT NULL");
+		}
+		for (TableProfile.Column col: p.columns) {
+			if (col.uniqueValues != null) {
+				sb.append(sep);
+				sb.append(comment);
+				sb.append("\n");
+				comment = "\t-- nvals=" + col.uniqueValues;
+				sb.append("  UNIQUE KEY " + p.name + "_" + col.name + " (" + col.name + ")");
+			}
+		}
+		if (!comment.isEmpty()) {
+			sb.append(comment);
+			sb.append("\n  )");
+		}
+		else sb.append(")");
+		if (!options.encoding.equals("")) sb.append("\n  CHARACTER SET = " + options.encoding);
+		sb.append(";\n\n");
+		return sb.toString();
+	}
+
+	/** Forms the LOAD DATA statement that fills a table from its csv file.  Values are trimmed, empty values
+	 * in nullable columns become NULL, and Oracle-style dates and datetimes are converted.
+	 * @param p the profile of the table
+	 * @param fileName the name of the csv file, as the server's client will find it
+	 * @return the statement
+	 */
+	public String loadData(TableProfile p, String fileName) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("LOAD DATA LOCAL INFILE \'" + fileName + "\' INTO TABLE " + p.name + "\n");
+		sb.append("   FIELDS TERMINATED BY \'" + quoteIfNeeded(options.separator) + "\'" +
+				" ESCAPED BY \'" + quoteIfNeeded(options.escape) + "\'" +
+				" OPTIONALLY ENCLOSED BY \'" + quoteIfNeeded(options.quote) + "\'\n");
+		sb.append("   LINES TERMINATED BY \'\\n\'\n");
+		if (p.headerRow) sb.append("   IGNORE 1 LINES\n");
+		String sep = "   (";
+		for (TableProfile.Column col: p.columns) {
+			sb.append(sep + "@" + col.name);
+			sep = ",";
+		}
+		sb.append(")\n");
+		sep = " SET\n";
+		for (TableProfile.Column col: p.columns) {
+			sb.append(sep + "   " + col.name + " = ");
+			sep = ",\n";
+			String expr = "@" + col.name;
+			if (col.oracleDateTime) expr = "STR_TO_DATE(" + expr + ",\"%d-%b-%Y %H:%i:%s\")";
+			else if (col.oracleDate) expr = "STR_TO_DATE(" + expr + ",\"%d-%b-%Y\")";
+			else expr = "trim(" + expr + ")";
+			if (col.nullable) expr = "IF(@" + col.name + "=\'\', NULL, " + expr + ")";
+			sb.append(expr);
+		}
+		sb.append(";\n\n");
+		return sb.toString();
+	}
+
+	/** Appends the histogram statements for a table, for the columns whose types MySQL keeps histograms
+	 * for and that are not UNIQUE KEYs, and forms the table's JSON statistics.  The profile must have been made with histograms.
+	 * @param p the profile of the table
+	 * @param sb where to append the statements
+	 * @return the JSON statistics of all the columns
+	 */
+	public String histograms(TableProfile p, StringBuilder sb) {
+		int collation = Histogram.collationId(options.encoding);
+		StringBuilder json = new StringBuilder();
+		json.append("{\"table\": ").append(Histogram.jsonString(p.name));
+		json.append(",\n \"file\": ").append(Histogram.jsonString(p.source));
+		json.append(",\n \"rows\": ").append(p.rows);
+		json.append(",\n \"columns\": [");
+		String sep = "\n  ";
+		for (TableProfile.Column col: p.columns) {
+			// MySQL refuses histograms on the columns of a unique index, and the index serves the optimizer better
+			String dt = (col.uniqueValues != null) ? null : Histogram.dataType(col.type);
+			String hist = Histogram.toJson(dt, col.quantiles, col.frequencies, p.rows, col.nulls, options.buckets, collation,
+					Histogram.scale(col.type));
+			if (hist != null) sb.append(Histogram.statement(p.name, col.name, hist));
+			json.append(sep).append(Histogram.columnJson(col.name, col.type, p.rows, col.nulls, col.minInt, col.maxInt,
+					col.quantiles, col.frequencies, hist));
+			sep = ",\n  ";
+		}
+		json.append("\n ]}\n");
+		sb.append("\n");
+		return json.toString();
+	}
+
+	/** Describes how often each member of an ENUM occurs, for a comment in the table definition.
+	 * @param values the members
+	 * @param counts their counts
+	 * @return the description
+	 */
+	static String enumCounts(String[] values, long[] counts) {
+		StringBuilder sb = new StringBuilder("counts:");
+		for (int i = 0; i < values.length; i++) {
+			sb.append(' ');
+			InsertWriter.appendQuoted(sb, values[i]);
+			sb.append('=').append(counts[i]);
+		}
+		return sb.toString();
+	}
+
+	/** Given a char, returns a String containing that char or a string containing
+	 * two characters, a \ followed by the char if it needs to be quoted (i.e, if it
+	 * is itself a \ or ').  If the char is the null character, the empty string is returned.
+	 * @param c
+	 * @return a String holding the input char or quoting it or empty if \0.
+	 */
+	static String quoteIfNeeded(char c) {
+		String ans = String.valueOf(c);
+		if (c == CSVParser.NULL_CHARACTER) ans = "";
+		if (c == '\'' || c == '\\') ans = "\\" + ans;
+		return ans;
+	}
+}
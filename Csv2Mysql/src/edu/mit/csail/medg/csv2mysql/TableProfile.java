@@ -0,0 +1,170 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** What a {@link SchemaInferrer} has learned about the contents of one csv file: the number of rows, and for
+ * each column the MySQL type chosen for it, whether it holds NULLs, the range of its integers, the length
+ * of its longest value and whether it can be a UNIQUE KEY.  A TableProfile holds no SQL; a
+ * {@link SqlRenderer} turns it into a table definition and load statements.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class TableProfile {
+	final String name;
+	final String source;
+	long rows = 0;
+	boolean headerRow = false;
+	boolean truncated = false;
+	Column[] columns = new Column[0];
+	final ArrayList<String> warnings = new ArrayList<String>();
+
+	/** Creates an empty TableProfile
+	 * @param name the name of the table
+	 * @param source where the data came from, e.g., the file name
+	 */
+	TableProfile(String name, String source) {
+		this.name = name;
+		this.source = source;
+	}
+
+	/** @return the name of the table */
+	public String getName() {
+		return name;
+	}
+
+	/** @return where the data came from */
+	public String getSource() {
+		return source;
+	}
+
+	/** @return the number of rows of data, not counting a line of column names */
+	public long getRows() {
+		return rows;
+	}
+
+	/** @return true if the first line held the column names */
+	public boolean hasHeaderRow() {
+		return headerRow;
+	}
+
+	/** @return true if reading stopped early, at a line with the wrong number of fields */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/** @return the columns, in the order of the file */
+	public List<Column> getColumns() {
+		return Collections.unmodifiableList(Arrays.asList(columns));
+	}
+
+	/** @return the warnings about the data, e.g., about a line of the wrong length */
+	public List<String> getWarnings() {
+		return Collections.unmodifiableList(warnings);
+	}
+
+	/** What is known about one column of a table.
+	 */
+	public static class Column {
+		final String name;
+		String type;
+		boolean nullable = false;
+		long nulls = 0;
+		BigInteger minInt = null;
+		BigInteger maxInt = null;
+		long maxLength = 0;
+		long maxBytes = 0;
+		boolean text = false;
+		boolean oracleDate = false;
+		boolean oracleDateTime = false;
+		String[] enumValues = null;
+		long[] enumCounts = null;
+		BigInteger uniqueValues = null;
+		QuantileSketch quantiles = null;
+		FrequencySketch frequencies = null;
+
+		Column(String name) {
+			this.name = name;
+		}
+
+		/** @return the name of the column */
+		public String getName() {
+			return name;
+		}
+
+		/** @return the MySQL type chosen for the column, e.g., "INT UNSIGNED" or "VARCHAR(12)" */
+		public String getType() {
+			return type;
+		}
+
+		/** @return true if some value is NULL */
+		public boolean isNullable() {
+			return nullable;
+		}
+
+		/** @return the number of NULL values */
+		public long getNulls() {
+			return nulls;
+		}
+
+		/** @return the smallest value, if the column holds integers, otherwise null */
+		public BigInteger getMinInt() {
+			return minInt;
+		}
+
+		/** @return the largest value, if the column holds integers, otherwise null */
+		public BigInteger getMaxInt() {
+			return maxInt;
+		}
+
+		/** @return the length of the longest value, in characters */
+		public long getMaxLength() {
+			return maxLength;
+		}
+
+		/** @return the length of the longest value, in bytes in the table's encoding */
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+
+		/** @return true if the column is VARCHAR or TEXT */
+		public boolean isText() {
+			return text;
+		}
+
+		/** @return true if the dates are in Oracle's format, e.g., 05-dec-2015 */
+		public boolean isOracleDate() {
+			return oracleDate;
+		}
+
+		/** @return true if the datetimes are in Oracle's format, e.g., 05-dec-2015 15:00:00 US/Eastern */
+		public boolean isOracleDateTime() {
+			return oracleDateTime;
+		}
+
+		/** @return the members of the ENUM, most frequent first, or null if the column is not an ENUM */
+		public List<String> getEnumValues() {
+			return (enumValues == null) ? null : Collections.unmodifiableList(Arrays.asList(enumValues));
+		}
+
+		/** @return the number of distinct values if the column can be a UNIQUE KEY, otherwise null */
+		public BigInteger getUniqueValues() {
+			return uniqueValues;
+		}
+
+		/** @return the column's quantile sketch, if histograms were gathered and its values are numbers or
+		 * dates and times, otherwise null */
+		public QuantileSketch getQuantiles() {
+			return quantiles;
+		}
+
+		/** @return the column's frequency sketch, if histograms were gathered, otherwise null */
+		public FrequencySketch getFrequencies() {
+			return frequencies;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package edu.mit.csail.medg.csv2mysql;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/** A Reader that accumulates the time spent in reading from the underlying Reader, which for an
+ * InputStreamReader is the time spent in I/O, decompression and character decoding.  It should be
+ * read in large blocks, e.g., through a BufferedReader, so that the cost of the timing is negligible.
+ *
+ * @author psz@mit.edu
+ *
+ */
+public class TimingReader extends FilterReader {
+	long nanos = 0;
+	long chars = 0;
+
+	/** Creates a TimingReader
+	 * @param in the Reader to read from
+	 */
+	public TimingReader(Reader in) {
+		super(in);
+	}
+
+	/** @return the total time spent in reads, in nanoseconds */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/** @return the number of chars read */
+	public long getChars() {
+		return chars;
+	}
+
+	@Override
+	public int read() throws IOException {
+		long t0 = System.nanoTime();
+		int c = super.read();
+		nanos += System.nanoTime() - t0;
+		if (c >= 0) chars++;
+		return c;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		long t0 = System.nanoTime();
+		int n = super.read(cbuf, off, len);
+		nanos += System.nanoTime() - t0;
+		if (n > 0) chars += n;
+		return n;
+	}
+}